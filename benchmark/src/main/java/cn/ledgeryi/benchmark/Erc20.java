@@ -0,0 +1,166 @@
+package cn.ledgeryi.benchmark;
+
+import static cn.ledgeryi.contract.vm.OpCode.ADD;
+import static cn.ledgeryi.contract.vm.OpCode.AND;
+import static cn.ledgeryi.contract.vm.OpCode.CALLDATALOAD;
+import static cn.ledgeryi.contract.vm.OpCode.CALLDATASIZE;
+import static cn.ledgeryi.contract.vm.OpCode.CALLER;
+import static cn.ledgeryi.contract.vm.OpCode.CALLVALUE;
+import static cn.ledgeryi.contract.vm.OpCode.DUP1;
+import static cn.ledgeryi.contract.vm.OpCode.DUP2;
+import static cn.ledgeryi.contract.vm.OpCode.DUP3;
+import static cn.ledgeryi.contract.vm.OpCode.DUP4;
+import static cn.ledgeryi.contract.vm.OpCode.EQ;
+import static cn.ledgeryi.contract.vm.OpCode.GT;
+import static cn.ledgeryi.contract.vm.OpCode.ISZERO;
+import static cn.ledgeryi.contract.vm.OpCode.JUMPDEST;
+import static cn.ledgeryi.contract.vm.OpCode.JUMPI;
+import static cn.ledgeryi.contract.vm.OpCode.LOG3;
+import static cn.ledgeryi.contract.vm.OpCode.LT;
+import static cn.ledgeryi.contract.vm.OpCode.MSTORE;
+import static cn.ledgeryi.contract.vm.OpCode.POP;
+import static cn.ledgeryi.contract.vm.OpCode.PUSH1;
+import static cn.ledgeryi.contract.vm.OpCode.PUSH2;
+import static cn.ledgeryi.contract.vm.OpCode.RETURN;
+import static cn.ledgeryi.contract.vm.OpCode.REVERT;
+import static cn.ledgeryi.contract.vm.OpCode.SHA3;
+import static cn.ledgeryi.contract.vm.OpCode.SHR;
+import static cn.ledgeryi.contract.vm.OpCode.SLOAD;
+import static cn.ledgeryi.contract.vm.OpCode.SSTORE;
+import static cn.ledgeryi.contract.vm.OpCode.SUB;
+import static cn.ledgeryi.contract.vm.OpCode.SWAP1;
+
+import cn.ledgeryi.common.runtime.vm.DataWord;
+import cn.ledgeryi.contract.vm.OpCode;
+import cn.ledgeryi.crypto.utils.Hash;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runtime code of an ERC20 {@code transfer(address,uint256)}, assembled the way solc lays it out:
+ * selector dispatch, {@code balances} mapping in slot 0, balance check, two balance updates, the
+ * {@code Transfer} event and a {@code true} return.
+ */
+public final class Erc20 {
+
+  private static final byte[] TRANSFER = Arrays.copyOf(
+      Hash.sha3("transfer(address,uint256)".getBytes(StandardCharsets.UTF_8)), 4);
+  private static final byte[] TRANSFER_EVENT =
+      Hash.sha3("Transfer(address,address,uint256)".getBytes(StandardCharsets.UTF_8));
+  private static final byte[] ADDRESS_MASK = new byte[20];
+
+  static {
+    Arrays.fill(ADDRESS_MASK, (byte) 0xff);
+  }
+
+  private Erc20() {
+  }
+
+  public static byte[] runtimeCode() {
+    Assembler asm = new Assembler();
+    asm.push(0x80).push(0x40).op(MSTORE);
+    asm.op(CALLVALUE).op(ISZERO).pushLabel("noValue").op(JUMPI).push(0).op(DUP1).op(REVERT);
+    asm.label("noValue");
+    asm.push(4).op(CALLDATASIZE).op(LT).pushLabel("fail").op(JUMPI);
+    asm.push(0).op(CALLDATALOAD).push(0xe0).op(SHR);
+    asm.op(DUP1).push(TRANSFER).op(EQ).pushLabel("transfer").op(JUMPI);
+    asm.label("fail").push(0).op(DUP1).op(REVERT);
+
+    // selector, to, amount
+    asm.label("transfer");
+    asm.push(4).op(CALLDATALOAD).push(ADDRESS_MASK).op(AND);
+    asm.push(0x24).op(CALLDATALOAD);
+    // balances[msg.sender] -= amount
+    asm.op(CALLER);
+    balanceSlot(asm);
+    asm.op(DUP1).op(SLOAD);
+    asm.op(DUP1).op(DUP4).op(GT).pushLabel("fail").op(JUMPI);
+    asm.op(DUP3).op(SWAP1).op(SUB).op(SWAP1).op(SSTORE);
+    // balances[to] += amount
+    asm.op(DUP2);
+    balanceSlot(asm);
+    asm.op(DUP1).op(SLOAD).op(DUP3).op(ADD).op(SWAP1).op(SSTORE);
+    // emit Transfer(msg.sender, to, amount)
+    asm.op(DUP1).push(0).op(MSTORE);
+    asm.op(DUP2).op(CALLER).push(TRANSFER_EVENT).push(0x20).push(0).op(LOG3);
+    asm.op(POP).op(POP).op(POP);
+    // return true
+    asm.push(1).push(0).op(MSTORE).push(0x20).push(0).op(RETURN);
+    return asm.build();
+  }
+
+  /**
+   * @return the call data of {@code transfer(to, amount)}.
+   */
+  public static byte[] transferCall(byte[] to, long amount) {
+    byte[] data = new byte[4 + 32 + 32];
+    System.arraycopy(TRANSFER, 0, data, 0, 4);
+    System.arraycopy(new DataWord(to).getData(), 0, data, 4, 32);
+    System.arraycopy(new DataWord(amount).getData(), 0, data, 36, 32);
+    return data;
+  }
+
+  /**
+   * @return the storage key of {@code balances[address]}.
+   */
+  public static DataWord balanceKey(byte[] address) {
+    byte[] preimage = new byte[64];
+    System.arraycopy(new DataWord(address).getData(), 0, preimage, 0, 32);
+    return new DataWord(Hash.sha3(preimage));
+  }
+
+  /**
+   * replace the address on top of the stack by its {@code balances} key.
+   */
+  private static void balanceSlot(Assembler asm) {
+    asm.push(0).op(MSTORE).push(0).push(0x20).op(MSTORE).push(0x40).push(0).op(SHA3);
+  }
+
+  private static final class Assembler {
+
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final Map<Integer, String> jumps = new HashMap<>();
+
+    Assembler op(OpCode op) {
+      code.write(op.val());
+      return this;
+    }
+
+    Assembler push(int value) {
+      return push(new byte[]{(byte) value});
+    }
+
+    Assembler push(byte[] value) {
+      code.write(PUSH1.val() + value.length - 1);
+      code.write(value, 0, value.length);
+      return this;
+    }
+
+    Assembler pushLabel(String label) {
+      code.write(PUSH2.val());
+      jumps.put(code.size(), label);
+      code.write(0);
+      code.write(0);
+      return this;
+    }
+
+    Assembler label(String label) {
+      labels.put(label, code.size());
+      return op(JUMPDEST);
+    }
+
+    byte[] build() {
+      byte[] bytes = code.toByteArray();
+      jumps.forEach((at, label) -> {
+        int target = labels.get(label);
+        bytes[at] = (byte) (target >>> 8);
+        bytes[at + 1] = (byte) target;
+      });
+      return bytes;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
+import cn.ledgeryi.chainbase.core.capsule.TransactionCapsule;
+import cn.ledgeryi.crypto.SignInterface;
+import cn.ledgeryi.crypto.SignUtils;
+import cn.ledgeryi.protos.Protocol.Transaction;
+import cn.ledgeryi.protos.Protocol.Transaction.Contract.ContractType;
+import cn.ledgeryi.protos.contract.SmartContractOuterClass.TriggerSmartContract;
+import com.google.protobuf.ByteString;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Stand-in data shared by the benchmarks, nothing here touches a database or the network.
+ */
+public final class Fixtures {
+
+  private Fixtures() {
+  }
+
+  /**
+   * static configuration the capsules read, must run before the first TransactionCapsule is used.
+   */
+  public static void init() {
+    if (DBConfig.getValidContractProtoThreadNum() <= 0) {
+      DBConfig.setValidContractProtoThreadNum(1);
+    }
+  }
+
+  public static SignInterface newKey(long seed) {
+    SecureRandom random = new SecureRandom();
+    random.setSeed(seed);
+    return SignUtils.getGeneratedRandomSign(random, DBConfig.isEccCryptoEngine());
+  }
+
+  /**
+   * a signed TriggerSmartContract transaction calling {@code transfer(address,uint256)}.
+   */
+  public static Transaction newTriggerTransaction(SignInterface owner, long seed) {
+    init();
+    Random random = new Random(seed);
+    byte[] contract = new byte[21];
+    random.nextBytes(contract);
+    byte[] data = new byte[68];
+    random.nextBytes(data);
+
+    TriggerSmartContract trigger = TriggerSmartContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(owner.getAddress()))
+        .setContractAddress(ByteString.copyFrom(contract))
+        .setData(ByteString.copyFrom(data))
+        .build();
+    TransactionCapsule capsule = new TransactionCapsule(trigger, ContractType.TriggerSmartContract);
+    capsule.setReference(seed, new byte[32]);
+    capsule.setExpiration(System.currentTimeMillis() + 60_000);
+    capsule.sign(owner.getPrivateKey());
+    return capsule.getInstance();
+  }
+}
@@ -0,0 +1,48 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.common.utils.Sha256Hash;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Sha256Hash#of} with SHA-256 ({@code ecc}) and SM3, over a transaction raw_data, a
+ * transaction and a block sized input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+
+  @Param({"true", "false"})
+  private boolean ecc;
+
+  @Param({"128", "512", "65536"})
+  private int size;
+
+  private byte[] data;
+
+  @Setup
+  public void setup() {
+    data = new byte[size];
+    new Random(1).nextBytes(data);
+  }
+
+  @Benchmark
+  public Sha256Hash of() {
+    return Sha256Hash.of(ecc, data);
+  }
+}
@@ -0,0 +1,54 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.crypto.SignInterface;
+import cn.ledgeryi.framework.core.services.http.JsonFormat;
+import cn.ledgeryi.protos.Protocol.Block;
+import cn.ledgeryi.protos.Protocol.BlockHeader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HTTP api rendering of a block, as getblockbynum answers it, in hex ({@code visible=false}) and
+ * in readable form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonFormatBenchmark {
+
+  @Param({"1", "100"})
+  private int transactions;
+
+  @Param({"true", "false"})
+  private boolean visible;
+
+  private Block block;
+
+  @Setup
+  public void setup() {
+    SignInterface owner = Fixtures.newKey(1);
+    Block.Builder builder = Block.newBuilder().setBlockHeader(BlockHeader.getDefaultInstance());
+    for (int i = 0; i < transactions; i++) {
+      builder.addTransactions(Fixtures.newTriggerTransaction(owner, i));
+    }
+    block = builder.build();
+  }
+
+  @Benchmark
+  public String printToString() {
+    return JsonFormat.printToString(block, visible);
+  }
+}
@@ -0,0 +1,85 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.core.db2.common.DB;
+import cn.ledgeryi.chainbase.core.db2.common.Flusher;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in for the LevelDB/RocksDB store under a {@code SnapshotRoot}.
+ */
+public class MemoryDB implements DB<byte[], byte[]>, Flusher {
+
+  private final Map<WrappedByteArray, byte[]> rows = new ConcurrentHashMap<>();
+  private final String name;
+
+  public MemoryDB(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public byte[] get(byte[] key) {
+    return rows.get(WrappedByteArray.of(key));
+  }
+
+  @Override
+  public void put(byte[] key, byte[] value) {
+    rows.put(WrappedByteArray.copyOf(key), value);
+  }
+
+  @Override
+  public long size() {
+    return rows.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  @Override
+  public void remove(byte[] key) {
+    rows.remove(WrappedByteArray.of(key));
+  }
+
+  @Override
+  public String getDbName() {
+    return name;
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], byte[]>> iterator() {
+    return rows.entrySet().stream()
+        .map(e -> (Map.Entry<byte[], byte[]>) new SimpleImmutableEntry<>(e.getKey().getBytes(),
+            e.getValue()))
+        .iterator();
+  }
+
+  @Override
+  public DB<byte[], byte[]> newInstance() {
+    return new MemoryDB(name);
+  }
+
+  @Override
+  public void flush(Map<byte[], byte[]> batch) {
+    batch.forEach((key, value) -> {
+      if (value == null) {
+        remove(key);
+      } else {
+        put(key, value);
+      }
+    });
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public void reset() {
+    rows.clear();
+  }
+}
@@ -0,0 +1,64 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
+import cn.ledgeryi.chainbase.core.capsule.utils.MerkleTree;
+import cn.ledgeryi.common.utils.Sha256Hash;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transaction merkle root of a block, as computed by {@code BlockCapsule.calcMerkleRoot}, on one
+ * thread and on the common fork-join pool, and the inclusion proof of one transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MerkleTreeBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  private int leaves;
+
+  private List<Sha256Hash> hashes;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(1);
+    hashes = new ArrayList<>(leaves);
+    for (int i = 0; i < leaves; i++) {
+      byte[] data = new byte[32];
+      random.nextBytes(data);
+      hashes.add(Sha256Hash.of(DBConfig.isEccCryptoEngine(), data));
+    }
+  }
+
+  @Benchmark
+  public Sha256Hash root() {
+    return MerkleTree.root(hashes);
+  }
+
+  @Benchmark
+  public Sha256Hash rootSequential() {
+    return MerkleTree.root(hashes, false);
+  }
+
+  @Benchmark
+  public List<Sha256Hash> proof() {
+    return MerkleTree.proof(hashes, leaves / 3);
+  }
+}
@@ -0,0 +1,78 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.common.storage.rocksdb.RocksDbDataSourceImpl;
+import cn.ledgeryi.chainbase.common.storage.rocksdb.RocksDbSettings;
+import cn.ledgeryi.common.utils.FileUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batched writes of a block worth of rows into a RocksDB store in a temporary directory, as the
+ * snapshot flush does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RocksDbBenchmark {
+
+  @Param({"100", "1000"})
+  private int batchSize;
+
+  @Param({"100", "1024"})
+  private int valueSize;
+
+  private String directory;
+  private RocksDbDataSourceImpl db;
+  private Map<byte[], byte[]> batch;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void open() throws IOException {
+    directory = Files.createTempDirectory("rocksdb-benchmark").toString();
+    db = new RocksDbDataSourceImpl(directory, "benchmark", RocksDbSettings.getDefaultSettings());
+    random = new Random(1);
+  }
+
+  @Setup(Level.Invocation)
+  public void nextBatch() {
+    batch = new HashMap<>(batchSize * 2);
+    for (int i = 0; i < batchSize; i++) {
+      byte[] key = new byte[32];
+      byte[] value = new byte[valueSize];
+      random.nextBytes(key);
+      random.nextBytes(value);
+      batch.put(key, value);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    db.closeDB();
+    FileUtil.recursiveDelete(directory);
+  }
+
+  @Benchmark
+  public void updateByBatch() {
+    db.updateByBatch(batch);
+  }
+}
@@ -0,0 +1,72 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.crypto.SignInterface;
+import cn.ledgeryi.crypto.SignUtils;
+import cn.ledgeryi.crypto.SignatureInterface;
+import java.security.SecureRandom;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Signer address recovery from the 65-byte signature of a transaction.
+ *
+ * <p>{@code base64Path} replays the old validation, the signature is encoded to Base64, decoded
+ * again and recovered on the generic curve; {@code rawPath} recovers from the bytes on the
+ * specialised curve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureRecoveryBenchmark {
+
+  @Param({"true", "false"})
+  private boolean ecc;
+
+  private byte[] hash;
+  private byte[] signature;
+
+  @Setup
+  public void setup() throws SignatureException {
+    SecureRandom random = new SecureRandom();
+    random.setSeed(1);
+    SignInterface key = SignUtils.getGeneratedRandomSign(random, ecc);
+    hash = new byte[32];
+    new Random(1).nextBytes(hash);
+    signature = key.Base64toBytes(key.signHash(hash));
+    if (!Arrays.equals(base64Path(), rawPath())) {
+      throw new IllegalStateException("recovery paths disagree");
+    }
+  }
+
+  @Benchmark
+  public byte[] base64Path() throws SignatureException {
+    byte v = signature[64];
+    if (v < 27) {
+      v += 27;
+    }
+    SignatureInterface components = SignUtils.fromComponents(Arrays.copyOfRange(signature, 0, 32),
+        Arrays.copyOfRange(signature, 32, 64), v, ecc);
+    return SignUtils.signatureToAddress(hash, components.toBase64(), ecc);
+  }
+
+  @Benchmark
+  public byte[] rawPath() throws SignatureException {
+    return SignUtils.recoverAddress(hash, signature, ecc);
+  }
+}
@@ -0,0 +1,106 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.core.db2.core.Chainbase;
+import cn.ledgeryi.chainbase.core.db2.core.Snapshot;
+import cn.ledgeryi.chainbase.core.db2.core.SnapshotRoot;
+import com.google.common.primitives.Longs;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point reads through a stack of {@code depth} unflushed snapshots over an in-memory root.
+ *
+ * <p>The {@code walk*} benchmarks call {@link Snapshot#get} on the head, which looks the key up
+ * layer by layer; the {@code indexed*} ones go through {@link Chainbase#getUnchecked}, as the
+ * stores do. Keys are read from the root (below every layer), the oldest layer, the head, and a
+ * key that is nowhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+  private static final int KEYS_PER_LAYER = 1_000;
+
+  @Param({"1", "16", "64"})
+  private int depth;
+
+  private Chainbase chainbase;
+  private Snapshot head;
+  private byte[] rootKey;
+  private byte[] oldestKey;
+  private byte[] headKey;
+  private byte[] missingKey;
+
+  @Setup
+  public void setup() {
+    SnapshotRoot root = new SnapshotRoot(new MemoryDB("benchmark"));
+    chainbase = new Chainbase(root);
+    for (int i = 0; i < KEYS_PER_LAYER; i++) {
+      root.put(key(-1, i), key(-1, i));
+    }
+    for (int layer = 0; layer < depth; layer++) {
+      chainbase.setHead(chainbase.getHead().advance());
+      for (int i = 0; i < KEYS_PER_LAYER; i++) {
+        chainbase.put(key(layer, i), key(layer, i));
+      }
+    }
+    head = chainbase.getHead();
+    rootKey = key(-1, KEYS_PER_LAYER / 2);
+    oldestKey = key(0, KEYS_PER_LAYER / 2);
+    headKey = key(depth - 1, KEYS_PER_LAYER / 2);
+    missingKey = key(depth, 0);
+  }
+
+  private static byte[] key(int layer, int i) {
+    return Longs.toByteArray(((long) layer << 32) | i);
+  }
+
+  @Benchmark
+  public byte[] walkRoot() {
+    return head.get(rootKey);
+  }
+
+  @Benchmark
+  public byte[] walkOldest() {
+    return head.get(oldestKey);
+  }
+
+  @Benchmark
+  public byte[] walkHead() {
+    return head.get(headKey);
+  }
+
+  @Benchmark
+  public byte[] walkMissing() {
+    return head.get(missingKey);
+  }
+
+  @Benchmark
+  public byte[] indexedRoot() {
+    return chainbase.getUnchecked(rootKey);
+  }
+
+  @Benchmark
+  public byte[] indexedOldest() {
+    return chainbase.getUnchecked(oldestKey);
+  }
+
+  @Benchmark
+  public byte[] indexedMissing() {
+    return chainbase.getUnchecked(missingKey);
+  }
+}
@@ -0,0 +1,55 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
+import cn.ledgeryi.chainbase.core.ChainBaseManager;
+import cn.ledgeryi.chainbase.core.db.RevokingDatabase;
+import cn.ledgeryi.chainbase.core.db2.core.ILedgerYiBase;
+import cn.ledgeryi.chainbase.core.db2.core.SnapshotManager;
+import cn.ledgeryi.chainbase.core.store.StoreFactory;
+import cn.ledgeryi.common.utils.FileUtil;
+import cn.ledgeryi.contract.vm.repository.RepositoryImpl;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * The chainbase stores of a node (db.version = 2, LevelDB), created by Spring the way the node
+ * creates them, in a temporary directory removed on {@link #close()}.
+ *
+ * <p>Repositories handed out are real {@link RepositoryImpl} roots; as long as they are not
+ * committed everything written through them stays in their caches and the stores stay empty.
+ */
+public class TemporaryStores implements Closeable {
+
+  private final String directory;
+  private final AnnotationConfigApplicationContext context;
+
+  public TemporaryStores() throws IOException {
+    Fixtures.init();
+    directory = Files.createTempDirectory("chainbase-benchmark").toString();
+    DBConfig.setDbVersion(2);
+    DBConfig.setDbEngine("LEVELDB");
+    DBConfig.setOutputDirectoryConfig(directory);
+    DBConfig.setDbDirectory("database");
+
+    context = new AnnotationConfigApplicationContext();
+    context.registerBean(RevokingDatabase.class, () -> new SnapshotManager(directory));
+    context.scan("cn.ledgeryi.chainbase");
+    context.refresh();
+
+    StoreFactory.init();
+    StoreFactory.getInstance().setChainBaseManager(context.getBean(ChainBaseManager.class));
+  }
+
+  public RepositoryImpl newRepository() {
+    return RepositoryImpl.createRoot(StoreFactory.getInstance());
+  }
+
+  @Override
+  public void close() {
+    context.getBeansOfType(ILedgerYiBase.class).values().forEach(ILedgerYiBase::close);
+    context.close();
+    FileUtil.recursiveDelete(directory);
+  }
+}
@@ -0,0 +1,74 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
+import cn.ledgeryi.chainbase.core.capsule.TransactionCapsule;
+import cn.ledgeryi.common.core.exception.BadItemException;
+import cn.ledgeryi.common.utils.Sha256Hash;
+import cn.ledgeryi.protos.Protocol.Transaction;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the transaction id over the life of one received transaction.
+ *
+ * <p>A transaction id is looked up about six times between ingress and storage (dup check, id
+ * cache, broadcast, message handler, block assembly, transaction store). {@code recomputedId}
+ * replays the old behaviour, one raw_data serialization and hash per lookup; {@code memoizedId}
+ * goes through the capsule, which hashes once however often the id is asked for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionCapsuleBenchmark {
+
+  @Param({"1", "6"})
+  private int idLookups;
+
+  private byte[] data;
+
+  @Setup
+  public void setup() {
+    data = Fixtures.newTriggerTransaction(Fixtures.newKey(1), 1).toByteArray();
+  }
+
+  @Benchmark
+  public void recomputedId(Blackhole bh) throws InvalidProtocolBufferException {
+    Transaction transaction = Transaction.parseFrom(data);
+    for (int i = 0; i < idLookups; i++) {
+      bh.consume(Sha256Hash.of(DBConfig.isEccCryptoEngine(),
+          transaction.getRawData().toByteArray()));
+    }
+  }
+
+  @Benchmark
+  public void memoizedId(Blackhole bh) throws BadItemException {
+    TransactionCapsule capsule = new TransactionCapsule(data);
+    for (int i = 0; i < idLookups; i++) {
+      bh.consume(capsule.getTransactionId());
+    }
+  }
+
+  @Benchmark
+  public void memoizedData(Blackhole bh) throws BadItemException {
+    TransactionCapsule capsule = new TransactionCapsule(data);
+    for (int i = 0; i < idLookups; i++) {
+      bh.consume(capsule.getData());
+      bh.consume(capsule.getOwnerAddress());
+    }
+  }
+}
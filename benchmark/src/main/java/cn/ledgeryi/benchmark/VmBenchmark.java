@@ -0,0 +1,116 @@
+package cn.ledgeryi.benchmark;
+
+import cn.ledgeryi.chainbase.common.runtime.InternalTransaction;
+import cn.ledgeryi.chainbase.common.runtime.ProgramResult;
+import cn.ledgeryi.chainbase.core.capsule.ContractCapsule;
+import cn.ledgeryi.common.runtime.vm.DataWord;
+import cn.ledgeryi.contract.vm.VM;
+import cn.ledgeryi.contract.vm.config.VmConfig;
+import cn.ledgeryi.contract.vm.program.Program;
+import cn.ledgeryi.contract.vm.program.invoke.ProgramInvokeImpl;
+import cn.ledgeryi.contract.vm.repository.RepositoryImpl;
+import cn.ledgeryi.protos.Protocol.AccountType;
+import cn.ledgeryi.protos.contract.SmartContractOuterClass.SmartContract;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link VM#play} of an ERC20 transfer, see {@link Erc20}, against a {@link RepositoryImpl} over
+ * {@link TemporaryStores}, with the reference interpreter and with {@code VmConfig.fastDispatch}.
+ * Setup checks both agree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VmBenchmark {
+
+  private final VM vm = new VM(VmConfig.getInstance());
+
+  @Param({"false", "true"})
+  private boolean fastDispatch;
+
+  private TemporaryStores stores;
+  private RepositoryImpl repository;
+  private InternalTransaction internalTransaction;
+  private byte[] code;
+  private byte[] contract;
+  private byte[] sender;
+  private byte[] data;
+
+  @Setup
+  public void setup() throws IOException {
+    Random random = new Random(1);
+    contract = new byte[20];
+    sender = new byte[20];
+    byte[] recipient = new byte[20];
+    random.nextBytes(contract);
+    random.nextBytes(sender);
+    random.nextBytes(recipient);
+
+    code = Erc20.runtimeCode();
+    data = Erc20.transferCall(recipient, 1);
+    stores = new TemporaryStores();
+    repository = stores.newRepository();
+    repository.createAccount(contract, AccountType.Contract);
+    repository.createContract(contract, new ContractCapsule(SmartContract.newBuilder()
+        .setContractAddress(ByteString.copyFrom(contract))
+        .build()));
+    repository.saveCode(contract, code);
+    repository.putStorageValue(contract, Erc20.balanceKey(sender), new DataWord(Long.MAX_VALUE));
+    internalTransaction = new InternalTransaction(new byte[32], 0, 0, sender, contract, 0, data,
+        "call", 0);
+
+    VmConfig.setFastDispatch(!fastDispatch);
+    Program other = transfer();
+    VmConfig.setFastDispatch(fastDispatch);
+    Program program = transfer();
+    ProgramResult result = program.getResult();
+    if (result.getException() != null || result.isRevert()
+        || !new DataWord(result.getHReturn()).equals(DataWord.ONE())
+        || !repository.getStorageValue(contract, Erc20.balanceKey(recipient))
+        .equals(new DataWord(2))) {
+      throw new IllegalStateException("transfer failed", result.getException());
+    }
+    if (program.getCpuTimeUsed() != other.getCpuTimeUsed()
+        || program.getMemSize() != other.getMemSize()
+        || program.getPreviouslyExecutedOp() != other.getPreviouslyExecutedOp()
+        || !Arrays.equals(result.getHReturn(), other.getResult().getHReturn())) {
+      throw new IllegalStateException("dispatch loops disagree");
+    }
+  }
+
+  @TearDown
+  public void close() {
+    stores.close();
+  }
+
+  @Benchmark
+  public Program transfer() {
+    long now = System.nanoTime() / 1000;
+    ProgramInvokeImpl invoke = new ProgramInvokeImpl(contract, sender, sender, 0, data,
+        new byte[32], new byte[20], System.currentTimeMillis(), repository, 1, now,
+        now + TimeUnit.SECONDS.toMicros(1));
+    Program program = new Program(code, invoke, internalTransaction, VmConfig.getInstance(), true);
+    program.setRootTransactionId(new byte[32]);
+    vm.play(program);
+    return program;
+  }
+}
@@ -65,8 +65,12 @@ public abstract class Message {
     return dynamicPropertiesStore.getAllowProtoFilterNum() == 1;
   }
 
+  /**
+   * @return the type byte followed by the payload, the payload array is wrapped, not copied, so
+   * a message sent to many peers shares it.
+   */
   public ByteBuf getSendData() {
-    return Unpooled.wrappedBuffer(ArrayUtils.add(this.getData(), 0, type));
+    return Unpooled.wrappedBuffer(new byte[]{type}, ArrayUtils.nullToEmpty(this.getData()));
   }
 
   public Sha256Hash getMessageId() {
@@ -9,12 +9,27 @@ import cn.ledgeryi.protos.Protocol;
 import cn.ledgeryi.protos.contract.SmartContractOuterClass.CreateSmartContract;
 import cn.ledgeryi.protos.contract.SmartContractOuterClass.SmartContract.ABI;
 import cn.ledgeryi.protos.contract.SmartContractOuterClass.TriggerSmartContract;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 public class ContractUtils {
 
+    /**
+     * selector tables by ABI instance, weak keys compare by identity. The contract store shares
+     * the decoded protobuf of a contract until it changes, so a table lives as long as the ABI
+     * it was built from is in use and a contract created again or with its ABI cleared gets a
+     * new one.
+     */
+    private static final LoadingCache<ABI, Map<Integer, Boolean>> CONSTANT_SELECTORS =
+            CacheBuilder.newBuilder().weakKeys().maximumSize(10_000)
+                    .build(CacheLoader.from(ContractUtils::constantSelectors));
+
     /**
      * create contract address
      */
@@ -52,13 +67,23 @@ public class ContractUtils {
         if (selector == null || selector.length != 4 || abi.getEntrysList().size() == 0) {
             return false;
         }
+        Boolean constant = CONSTANT_SELECTORS.getUnchecked(abi).get(Ints.fromByteArray(selector));
+        return constant != null && constant;
+    }
+
+    /**
+     * whether each function of {@code abi} is constant, by selector. The first function with a
+     * selector decides for it.
+     */
+    private static Map<Integer, Boolean> constantSelectors(ABI abi) {
+        Map<Integer, Boolean> selectors = new HashMap<>();
         for (int i = 0; i < abi.getEntrysCount(); i++) {
             ABI.Entry entry = abi.getEntrys(i);
             if (entry.getType() != ABI.Entry.EntryType.Function) {
                 continue;
             }
             int inputCount = entry.getInputsCount();
-            StringBuffer sb = new StringBuffer();
+            StringBuilder sb = new StringBuilder();
             sb.append(entry.getName());
             sb.append("(");
             for (int k = 0; k < inputCount; k++) {
@@ -69,17 +94,11 @@ public class ContractUtils {
                 }
             }
             sb.append(")");
-            byte[] funcSelector = new byte[4];
-            System.arraycopy(Hash.sha3(sb.toString().getBytes()), 0, funcSelector, 0, 4);
-            if (Arrays.equals(funcSelector, selector)) {
-                if (entry.getConstant() == true || entry.getStateMutability().equals(ABI.Entry.StateMutabilityType.View)) {
-                    return true;
-                } else {
-                    return false;
-                }
-            }
+            int selector = Ints.fromByteArray(Hash.sha3(sb.toString().getBytes()));
+            selectors.putIfAbsent(selector, entry.getConstant()
+                    || entry.getStateMutability().equals(ABI.Entry.StateMutabilityType.View));
         }
-        return false;
+        return selectors;
     }
 
     private static byte[] getSelector(byte[] data) {
@@ -0,0 +1,87 @@
+package cn.ledgeryi.chainbase.core.capsule;
+
+import cn.ledgeryi.common.utils.Sha256Hash;
+import cn.ledgeryi.protos.Protocol.Block;
+import com.google.protobuf.CodedOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the transactions of a block being produced.
+ *
+ * <p>Duplicates are rejected through a set of the included transaction ids and the serialized
+ * size of the block is tracked as transactions are appended, so filling a block costs one pass
+ * over the pending transactions; the block protobuf is only rebuilt once, by {@link #build()}.
+ */
+public class BlockAssembler {
+
+  private final BlockCapsule block;
+  private final long maxSize;
+  private final List<TransactionCapsule> transactions = new ArrayList<>();
+  private final Set<Sha256Hash> ids = new HashSet<>();
+  private long size;
+
+  public BlockAssembler(BlockCapsule block, long maxSize) {
+    this.block = block;
+    this.maxSize = maxSize;
+    this.size = block.getInstance().getSerializedSize();
+  }
+
+  /**
+   * @return the block with the header only, for the transactions to be processed against.
+   */
+  public BlockCapsule getBlock() {
+    return block;
+  }
+
+  public boolean contains(TransactionCapsule tx) {
+    return ids.contains(tx.getTransactionId());
+  }
+
+  /**
+   * @return the size of the block once {@code tx} is appended.
+   */
+  public long sizeWith(TransactionCapsule tx) {
+    return size + entrySize(tx);
+  }
+
+  public boolean fits(TransactionCapsule tx) {
+    return sizeWith(tx) <= maxSize;
+  }
+
+  /**
+   * @return false if the transaction is already in the block.
+   */
+  public boolean add(TransactionCapsule tx) {
+    if (!ids.add(tx.getTransactionId())) {
+      return false;
+    }
+    transactions.add(tx);
+    size += entrySize(tx);
+    return true;
+  }
+
+  public int getTransactionCount() {
+    return transactions.size();
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Append the collected transactions to the block.
+   */
+  public BlockCapsule build() {
+    block.addTransactions(transactions);
+    return block;
+  }
+
+  private static long entrySize(TransactionCapsule tx) {
+    int length = (int) tx.getSerializedSize();
+    return CodedOutputStream.computeTagSize(Block.TRANSACTIONS_FIELD_NUMBER)
+        + CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+  }
+}
@@ -14,7 +14,6 @@ import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.Setter;
@@ -114,6 +113,16 @@ public class BlockCapsule implements ProtoCapsule<Block> {
     getTransactions().add(pendingTx);
   }
 
+  /**
+   * Append all of {@code pendingTxs} with a single rebuild of the block.
+   */
+  public void addTransactions(List<TransactionCapsule> pendingTxs) {
+    Block.Builder builder = this.block.toBuilder();
+    pendingTxs.forEach(tx -> builder.addTransactions(tx.getInstance()));
+    this.block = builder.build();
+    getTransactions().addAll(pendingTxs);
+  }
+
   public List<TransactionCapsule> getTransactions() {
     return transactions;
   }
@@ -134,14 +143,14 @@ public class BlockCapsule implements ProtoCapsule<Block> {
   }
 
   private Sha256Hash getRawHash() {
-    return Sha256Hash.of(DBConfig.isEccCryptoEngine(), this.block.getBlockHeader().getRawData().toByteArray());
+    return Sha256Hash.of(DBConfig.isEccCryptoEngine(), this.block.getBlockHeader().getRawData());
   }
 
   public boolean validateSignature(DynamicPropertiesStore dynamicPropertiesStore, AccountStore accountStore)
           throws ValidateSignatureException {
     try {
-      byte[] sigAddress = SignUtils.signatureToAddress(getRawHash().getBytes(),
-              TransactionCapsule.getBase64FromByteString(block.getBlockHeader().getMasterSignature()),
+      byte[] sigAddress = SignUtils.recoverAddress(getRawHash().getBytes(),
+              block.getBlockHeader().getMasterSignature().toByteArray(),
               DBConfig.isEccCryptoEngine());
       byte[] masterAccountAddress = block.getBlockHeader().getRawData().getMasterAddress().toByteArray();
       return Arrays.equals(sigAddress, masterAccountAddress);
@@ -152,7 +161,7 @@ public class BlockCapsule implements ProtoCapsule<Block> {
 
   public BlockId getBlockId() {
     if (blockId.equals(Sha256Hash.ZERO_HASH)) {
-      blockId = new BlockId(Sha256Hash.of(DBConfig.isEccCryptoEngine(), this.block.getBlockHeader().getRawData().toByteArray()),
+      blockId = new BlockId(Sha256Hash.of(DBConfig.isEccCryptoEngine(), this.block.getBlockHeader().getRawData()),
           getNum());
     }
     return blockId;
@@ -165,12 +174,22 @@ public class BlockCapsule implements ProtoCapsule<Block> {
       return Sha256Hash.ZERO_HASH;
     }
 
-    Vector<Sha256Hash> ids = transactionsList.stream()
+    return MerkleTree.root(getMerkleHashes());
+  }
+
+  /**
+   * the siblings proving that the {@code index}th transaction is under the merkle root, see
+   * {@link MerkleTree#verify}.
+   */
+  public List<Sha256Hash> getMerkleProof(int index) {
+    return MerkleTree.proof(getMerkleHashes(), index);
+  }
+
+  private List<Sha256Hash> getMerkleHashes() {
+    return this.block.getTransactionsList().stream()
         .map(TransactionCapsule::new)
         .map(TransactionCapsule::getMerkleHash)
-        .collect(Collectors.toCollection(Vector::new));
-
-    return MerkleTree.getInstance().createTree(ids).getRoot().getHash();
+        .collect(Collectors.toList());
   }
 
   public void setMerkleRoot() {
@@ -41,6 +41,11 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   private static final String OWNER_ADDRESS = "ownerAddress_";
 
   private Transaction transaction;
+  // derived from transaction and reset whenever it is replaced, see setTransaction
+  private volatile Sha256Hash rawHash;
+  private volatile byte[] data;
+  private volatile byte[] owner;
+  @Getter
   @Setter
   private boolean isVerified = false;
   @Setter
@@ -168,9 +173,22 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     return signature.toBase64();
   }
 
+  /**
+   * replace the transaction, dropping the values derived from it. {@code rawChanged} tells
+   * whether raw_data changed, a new signature or result keeps the id and owner.
+   */
+  private void setTransaction(Transaction transaction, boolean rawChanged) {
+    this.transaction = transaction;
+    this.data = null;
+    if (rawChanged) {
+      this.rawHash = null;
+      this.owner = null;
+    }
+  }
+
   public void setResult(TransactionResultCapsule transactionResultCapsule) {
-    this.transaction = this.getInstance().toBuilder().addRet(transactionResultCapsule.getInstance())
-        .build();
+    setTransaction(this.getInstance().toBuilder().addRet(transactionResultCapsule.getInstance())
+        .build(), false);
   }
 
   public void setReference(long blockNum, byte[] blockHash) {
@@ -179,7 +197,7 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
         .setRefBlockHash(ByteString.copyFrom(ByteArray.subArray(blockHash, 8, 16)))
         .setRefBlockBytes(ByteString.copyFrom(ByteArray.subArray(refBlockNum, 6, 8)))
         .build();
-    this.transaction = this.transaction.toBuilder().setRawData(rawData).build();
+    setTransaction(this.transaction.toBuilder().setRawData(rawData).build(), true);
   }
 
   public long getExpiration() {
@@ -188,14 +206,14 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
 
   public void setExpiration(long expiration) {
     Transaction.raw rawData = this.transaction.getRawData().toBuilder().setExpiration(expiration).build();
-    this.transaction = this.transaction.toBuilder().setRawData(rawData).build();
+    setTransaction(this.transaction.toBuilder().setRawData(rawData).build(), true);
   }
 
   public void setTimestamp() {
     Transaction.raw rawData = this.transaction.getRawData().toBuilder()
         .setTimestamp(System.currentTimeMillis())
         .build();
-    this.transaction = this.transaction.toBuilder().setRawData(rawData).build();
+    setTransaction(this.transaction.toBuilder().setRawData(rawData).build(), true);
   }
 
   public long getTimestamp() {
@@ -206,23 +224,44 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   public void createTransaction(com.google.protobuf.Message message, ContractType contractType) {
     Transaction.raw.Builder transactionBuilder = Transaction.raw.newBuilder().setContract(
         Transaction.Contract.newBuilder().setType(contractType).setParameter(Any.pack(message)).build());
-    transaction = Transaction.newBuilder().setRawData(transactionBuilder.build()).build();
+    setTransaction(Transaction.newBuilder().setRawData(transactionBuilder.build()).build(), true);
   }
 
   public Sha256Hash getMerkleHash() {
-    byte[] transBytes = this.transaction.toByteArray();
-    return Sha256Hash.of(DBConfig.isEccCryptoEngine(), transBytes);
+    return Sha256Hash.of(DBConfig.isEccCryptoEngine(), getData());
   }
 
   private Sha256Hash getRawHash() {
-    return Sha256Hash.of(DBConfig.isEccCryptoEngine(),
-        this.transaction.getRawData().toByteArray());
+    Sha256Hash hash = rawHash;
+    if (hash == null) {
+      Transaction tx = this.transaction;
+      hash = Sha256Hash.of(DBConfig.isEccCryptoEngine(), tx.getRawData());
+      if (tx == this.transaction) {
+        rawHash = hash;
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * the owner address of the contract, null if the contract type has none.
+   */
+  public byte[] getOwnerAddress() {
+    byte[] address = owner;
+    if (address == null) {
+      Transaction tx = this.transaction;
+      address = getOwner(tx.getRawData().getContract());
+      if (tx == this.transaction) {
+        owner = address;
+      }
+    }
+    return address;
   }
 
   public void sign(byte[] privateKey) {
     SignInterface cryptoEngine = SignUtils.fromPrivate(privateKey, DBConfig.isEccCryptoEngine());
     ByteString sig = ByteString.copyFrom(cryptoEngine.Base64toBytes(cryptoEngine.signHash(getRawHash().getBytes())));
-    this.transaction = this.transaction.toBuilder().setSignature(sig).build();
+    setTransaction(this.transaction.toBuilder().setSignature(sig).build(), false);
   }
 
   /**
@@ -233,11 +272,10 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
       return true;
     }
 
-    Transaction.Contract contract = this.transaction.getRawData().getContract();
     try {
-      byte[] owner = getOwner(contract);
-      byte[] address = SignUtils.signatureToAddress(getRawHash().getBytes(),
-              getBase64FromByteString(this.transaction.getSignature()), DBConfig.isEccCryptoEngine());
+      byte[] owner = getOwnerAddress();
+      byte[] address = SignUtils.recoverAddress(getRawHash().getBytes(),
+              this.transaction.getSignature().toByteArray(), DBConfig.isEccCryptoEngine());
       if (!Arrays.equals(owner, address)) {
         isVerified = false;
         throw new ValidateSignatureException("sig error");
@@ -255,13 +293,26 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     return getRawHash();
   }
 
+  /**
+   * the serialized transaction, computed once per transaction and shared between callers, it
+   * must not be modified.
+   */
   @Override
   public byte[] getData() {
-    return this.transaction.toByteArray();
+    byte[] bytes = data;
+    if (bytes == null) {
+      Transaction tx = this.transaction;
+      bytes = tx.toByteArray();
+      if (tx == this.transaction) {
+        data = bytes;
+      }
+    }
+    return bytes;
   }
 
   public long getSerializedSize() {
-    return this.transaction.getSerializedSize();
+    byte[] bytes = data;
+    return bytes == null ? this.transaction.getSerializedSize() : bytes.length;
   }
 
   @Override
@@ -300,10 +351,10 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     Result ret = Result.newBuilder().setContractRet(code).build();
     if (this.transaction.getRetCount() > 0) {
       ret = this.transaction.getRet(0).toBuilder().setContractRet(code).build();
-      this.transaction = transaction.toBuilder().setRet(0, ret).build();
+      setTransaction(transaction.toBuilder().setRet(0, ret).build(), false);
       return;
     }
-    this.transaction = transaction.toBuilder().addRet(ret).build();
+    setTransaction(transaction.toBuilder().addRet(ret).build(), false);
   }
 
   public ContractResult getContractRet() {
@@ -1,95 +1,171 @@
 package cn.ledgeryi.chainbase.core.capsule.utils;
 
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
+import cn.ledgeryi.common.utils.Sha256Hash;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import cn.ledgeryi.chainbase.common.utils.DBConfig;
-import lombok.Getter;
-import cn.ledgeryi.common.utils.Sha256Hash;
+/**
+ * Merkle root and inclusion proofs over a list of hashes.
+ *
+ * <p>Each level pairs up adjacent nodes and hashes their concatenation, a last node without a
+ * sibling moves up unchanged. Levels are computed into flat byte buffers, two per computation
+ * swapped between levels, and large levels are hashed in parallel on the common fork-join pool.
+ * Nothing is shared between calls, so blocks can be produced and validated concurrently.
+ */
+public final class MerkleTree {
 
-@Getter
-public class MerkleTree {
+  private static final int HASH = Sha256Hash.LENGTH;
+  // pairs per task, a level is split when it has more than one task worth of pairs
+  private static final int PAIRS_PER_TASK = 256;
 
-  private static volatile MerkleTree instance;
-  private List<Sha256Hash> hashList;
-  private List<Leaf> leaves;
-  private Leaf root;
+  private MerkleTree() {
+  }
 
-  public static MerkleTree getInstance() {
-    if (instance == null) {
-      synchronized (MerkleTree.class) {
-        if (instance == null) {
-          instance = new MerkleTree();
-        }
-      }
-    }
-    return instance;
+  /**
+   * @return the merkle root of {@code hashes}, which must not be empty.
+   */
+  public static Sha256Hash root(List<Sha256Hash> hashes) {
+    return root(hashes, true);
   }
 
-  public MerkleTree createTree(List<Sha256Hash> hashList) {
-    this.leaves = new ArrayList<>();
-    this.hashList = hashList;
-    List<Leaf> leaves = createLeaves(hashList);
+  /**
+   * @param parallel whether large levels may be hashed on the common fork-join pool.
+   */
+  public static Sha256Hash root(List<Sha256Hash> hashes, boolean parallel) {
+    if (hashes.isEmpty()) {
+      throw new IllegalArgumentException("no hash to build a merkle tree of");
+    }
+    byte[] level = flatten(hashes);
+    byte[] next = new byte[half(hashes.size()) * HASH];
+    for (int size = hashes.size(); size > 1; size = half(size)) {
+      hashLevel(level, size, next, parallel);
+      byte[] swap = level;
+      level = next;
+      next = swap;
+    }
+    return Sha256Hash.wrap(copy(level, 0));
+  }
 
-    while (leaves.size() > 1) {
-      leaves = createParentLeaves(leaves);
+  /**
+   * @return the siblings on the path from {@code hashes[index]} up to the root, bottom first. A
+   *     level where the node has no sibling contributes nothing.
+   */
+  public static List<Sha256Hash> proof(List<Sha256Hash> hashes, int index) {
+    if (index < 0 || index >= hashes.size()) {
+      throw new IndexOutOfBoundsException("index " + index + " of " + hashes.size() + " hashes");
     }
+    List<Sha256Hash> proof = new ArrayList<>();
+    byte[] level = flatten(hashes);
+    byte[] next = new byte[half(hashes.size()) * HASH];
+    for (int size = hashes.size(); size > 1; size = half(size)) {
+      int sibling = index ^ 1;
+      if (sibling < size) {
+        proof.add(Sha256Hash.wrap(copy(level, sibling)));
+      }
+      hashLevel(level, size, next, true);
+      byte[] swap = level;
+      level = next;
+      next = swap;
+      index >>= 1;
+    }
+    return proof;
+  }
 
-    this.root = leaves.get(0);
-    return this;
+  /**
+   * @return whether {@code hash} is the {@code index}th of {@code count} hashes whose merkle root
+   *     is {@code root}, given the {@link #proof} of that position.
+   */
+  public static boolean verify(Sha256Hash hash, int index, int count, List<Sha256Hash> proof,
+      Sha256Hash root) {
+    if (index < 0 || index >= count) {
+      return false;
+    }
+    byte[] pair = new byte[2 * HASH];
+    byte[] current = hash.getBytes();
+    int used = 0;
+    for (int size = count; size > 1; size = half(size)) {
+      int sibling = index ^ 1;
+      if (sibling < size) {
+        if (used == proof.size()) {
+          return false;
+        }
+        byte[] other = proof.get(used++).getBytes();
+        boolean left = (index & 1) == 0;
+        System.arraycopy(left ? current : other, 0, pair, 0, HASH);
+        System.arraycopy(left ? other : current, 0, pair, HASH, HASH);
+        current = Sha256Hash.hash(DBConfig.isEccCryptoEngine(), pair);
+      }
+      index >>= 1;
+    }
+    return used == proof.size() && root.equals(Sha256Hash.wrap(current));
   }
 
-  private List<Leaf> createParentLeaves(List<Leaf> leaves) {
-    int step = 2;
-    int len = leaves.size();
-    return IntStream.iterate(0, i -> i + step)
-        .limit(len)
-        .filter(i -> i < len)
-        .mapToObj(i -> {
-          Leaf right = i + 1 < len ? leaves.get(i + 1) : null;
-          return createLeaf(leaves.get(i), right);
-        }).collect(Collectors.toList());
+  private static int half(int size) {
+    return (size + 1) >>> 1;
   }
 
-  private List<Leaf> createLeaves(List<Sha256Hash> hashList) {
-    int step = 2;
-    int len = hashList.size();
-    return IntStream.iterate(0, i -> i + step)
-        .limit(len)
-        .filter(i -> i < len)
-        .mapToObj(i -> {
-          Leaf right = i + 1 < len ? createLeaf(hashList.get(i + 1)) : null;
-          return createLeaf(createLeaf(hashList.get(i)), right);
-        }).collect(Collectors.toList());
+  private static byte[] flatten(List<Sha256Hash> hashes) {
+    byte[] flat = new byte[hashes.size() * HASH];
+    for (int i = 0; i < hashes.size(); i++) {
+      System.arraycopy(hashes.get(i).getBytes(), 0, flat, i * HASH, HASH);
+    }
+    return flat;
   }
 
-  private Leaf createLeaf(Leaf left, Leaf right) {
-    Leaf leaf = new Leaf();
-    leaf.hash = right == null ? left.hash : computeHash(left.hash, right.hash);
-    leaf.left = left;
-    leaf.right = right;
-    this.leaves.add(leaf);
-    return leaf;
+  private static byte[] copy(byte[] level, int node) {
+    byte[] hash = new byte[HASH];
+    System.arraycopy(level, node * HASH, hash, 0, HASH);
+    return hash;
   }
 
-  private Leaf createLeaf(Sha256Hash hash) {
-    Leaf leaf = new Leaf();
-    leaf.hash = hash;
-    this.leaves.add(leaf);
-    return leaf;
+  /**
+   * hash the {@code size} nodes of {@code level} pairwise into {@code next}.
+   */
+  private static void hashLevel(byte[] level, int size, byte[] next, boolean parallel) {
+    int pairs = size >>> 1;
+    if (parallel && pairs > PAIRS_PER_TASK && ForkJoinPool.getCommonPoolParallelism() > 1) {
+      ForkJoinPool.commonPool().invoke(new HashPairs(level, next, 0, pairs));
+    } else {
+      hashPairs(level, next, 0, pairs);
+    }
+    if ((size & 1) == 1) {
+      System.arraycopy(level, (size - 1) * HASH, next, pairs * HASH, HASH);
+    }
   }
 
-  private Sha256Hash computeHash(Sha256Hash leftHash, Sha256Hash rightHash) {
-    return Sha256Hash.of(DBConfig.isEccCryptoEngine(),
-        leftHash.getByteString().concat(rightHash.getByteString()).toByteArray());
+  private static void hashPairs(byte[] level, byte[] next, int from, int to) {
+    boolean isSha256 = DBConfig.isEccCryptoEngine();
+    for (int i = from; i < to; i++) {
+      byte[] parent = Sha256Hash.hash(isSha256, level, 2 * i * HASH, 2 * HASH);
+      System.arraycopy(parent, 0, next, i * HASH, HASH);
+    }
   }
 
-  @Getter
-  public class Leaf {
+  private static final class HashPairs extends RecursiveAction {
+
+    private final byte[] level;
+    private final byte[] next;
+    private final int from;
+    private final int to;
+
+    private HashPairs(byte[] level, byte[] next, int from, int to) {
+      this.level = level;
+      this.next = next;
+      this.from = from;
+      this.to = to;
+    }
 
-    private Sha256Hash hash;
-    private Leaf left, right;
+    @Override
+    protected void compute() {
+      if (to - from <= PAIRS_PER_TASK) {
+        hashPairs(level, next, from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new HashPairs(level, next, from, middle), new HashPairs(level, next, middle, to));
+    }
   }
-}
\ No newline at end of file
+}
@@ -18,6 +18,7 @@ public class Parameter {
   public class NodeConstant {
     public static final long SYNC_FETCH_BATCH_NUM = 2000;
     public static final int MAX_TRANSACTION_PENDING = 5000;
+    public static final long MAX_TRANSACTION_PENDING_BYTES = 64L * 1024 * 1024;
     public static final int MAX_HTTP_CONNECT_NUMBER = 50;
   }
 
@@ -0,0 +1,96 @@
+package cn.ledgeryi.chainbase.core.db;
+
+import cn.ledgeryi.chainbase.core.capsule.ProtoCapsule;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import cn.ledgeryi.common.core.exception.BadItemException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Size-bounded cache of the decoded capsules of one store.
+ *
+ * <p>An entry remembers the bytes it was decoded from and is only served while the store still
+ * returns those bytes for the key, so snapshot writes, revokes and solidity reads invalidate it
+ * without any hook into the revoking stack. The cached capsule is never handed out, callers get
+ * a copy sharing its immutable protobuf instance.
+ */
+public class CapsuleCache<T extends ProtoCapsule> {
+
+  private final Cache<WrappedByteArray, Decoded<T>> cache;
+  private final UnaryOperator<T> copier;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CapsuleCache(long maximumSize, UnaryOperator<T> copier) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    this.copier = copier;
+  }
+
+  T get(byte[] key, byte[] value, Decoder<T> decoder) throws BadItemException {
+    Decoded<T> decoded = cache.getIfPresent(WrappedByteArray.of(key));
+    if (decoded != null && Arrays.equals(decoded.data, value)) {
+      hits.increment();
+      return copier.apply(decoded.capsule);
+    }
+
+    misses.increment();
+    T capsule = decoder.decode(value);
+    cache.put(WrappedByteArray.copyOf(key), new Decoded<>(value, copier.apply(capsule)));
+    return capsule;
+  }
+
+  void put(byte[] key, byte[] value, T capsule) {
+    cache.put(WrappedByteArray.copyOf(key), new Decoded<>(value, copier.apply(capsule)));
+  }
+
+  void invalidate(byte[] key) {
+    cache.invalidate(WrappedByteArray.of(key));
+  }
+
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 1.0 : (double) h / total;
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("size:%d, hits:%d, misses:%d, hitRate:%.4f",
+        size(), getHits(), getMisses(), getHitRate());
+  }
+
+  interface Decoder<T> {
+
+    T decode(byte[] value) throws BadItemException;
+  }
+
+  private static final class Decoded<T> {
+
+    private final byte[] data;
+    private final T capsule;
+
+    private Decoded(byte[] data, T capsule) {
+      this.data = data;
+      this.capsule = capsule;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import cn.ledgeryi.chainbase.core.db2.common.DB;
 import cn.ledgeryi.chainbase.core.db2.common.IRevokingDB;
 import cn.ledgeryi.chainbase.core.db2.common.LevelDB;
 import cn.ledgeryi.chainbase.core.db2.common.RocksDB;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
 import cn.ledgeryi.chainbase.core.db2.core.Chainbase;
 import cn.ledgeryi.chainbase.core.db2.core.ILedgerYiBase;
 import cn.ledgeryi.chainbase.core.db2.core.RevokingDBWithCachingOldValue;
@@ -28,8 +29,10 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Paths;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 
 
 @Slf4j(topic = "DB")
@@ -38,6 +41,9 @@ public abstract class LedgerYiStoreWithRevoking<T extends ProtoCapsule> implemen
   protected IRevokingDB revokingDB;
   private TypeToken<T> token = new TypeToken<T>(getClass()) {
   };
+  private Constructor<T> constructor = findConstructor();
+  @Getter
+  private CapsuleCache<T> cache;
 
   @Autowired
   private RevokingDatabase revokingDatabase;
@@ -84,47 +90,114 @@ public abstract class LedgerYiStoreWithRevoking<T extends ProtoCapsule> implemen
     revokingDatabase.add(revokingDB);
   }
 
+  /**
+   * cache decoded capsules of this store, {@code copier} must return a new capsule sharing the
+   * protobuf instance of its argument.
+   */
+  protected void enableCache(long maximumSize, UnaryOperator<T> copier) {
+    cache = new CapsuleCache<>(maximumSize, copier);
+  }
+
   @Override
   public void put(byte[] key, T item) {
     if (Objects.isNull(key) || Objects.isNull(item)) {
       return;
     }
 
-    revokingDB.put(key, item.getData());
+    byte[] value = item.getData();
+    revokingDB.put(key, value);
+    if (cache != null) {
+      cache.put(key, value, item);
+    }
+  }
+
+  /**
+   * replace the stored value of {@code key} by {@code operator} applied to it, a null result
+   * deletes the key.
+   */
+  protected void update(byte[] key, UnaryOperator<byte[]> operator) {
+    revokingDB.update(key, operator);
+    if (cache != null) {
+      cache.invalidate(key);
+    }
+  }
+
+  /**
+   * write every row of {@code rows} in one go, a null item deletes its key.
+   */
+  protected void batch(Map<WrappedByteArray, T> rows) {
+    Map<WrappedByteArray, byte[]> values = new LinkedHashMap<>(rows.size() * 2);
+    rows.forEach((key, item) -> values.put(key, item == null ? null : item.getData()));
+    revokingDB.batch(values);
+    if (cache != null) {
+      rows.forEach((key, item) -> {
+        if (item == null) {
+          cache.invalidate(key.getBytes());
+        } else {
+          cache.put(key.getBytes(), values.get(key), item);
+        }
+      });
+    }
   }
 
   @Override
   public void delete(byte[] key) {
     revokingDB.delete(key);
+    if (cache != null) {
+      cache.invalidate(key);
+    }
   }
 
   @Override
   public T get(byte[] key) throws ItemNotFoundException, BadItemException {
-    return of(revokingDB.get(key));
+    return of(key, revokingDB.get(key));
   }
 
   @Override
   public T getUnchecked(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
+    return decode(key, revokingDB.getUnchecked(key));
+  }
 
+  /**
+   * decode the stored value of {@code key}, null if it cannot be decoded.
+   */
+  protected T decode(byte[] key, byte[] value) {
     try {
-      return of(value);
+      return of(key, value);
     } catch (BadItemException e) {
       return null;
     }
   }
 
+  private T of(byte[] key, byte[] value) throws BadItemException {
+    if (cache == null || value == null) {
+      return of(value);
+    }
+
+    return cache.get(key, value, this::of);
+  }
+
   public T of(byte[] value) throws BadItemException {
+    if (constructor == null) {
+      throw new BadItemException(token.getRawType().getName() + " has no byte[] constructor");
+    }
+
     try {
-      Constructor constructor = token.getRawType().getConstructor(byte[].class);
-      @SuppressWarnings("unchecked")
-      T t = (T) constructor.newInstance((Object) value);
-      return t;
-    } catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
+      return constructor.newInstance((Object) value);
+    } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
       throw new BadItemException(e.getMessage());
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private Constructor<T> findConstructor() {
+    try {
+      return (Constructor<T>) token.getRawType().getConstructor(byte[].class);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
   @Override
   public boolean has(byte[] key) {
     return revokingDB.has(key);
@@ -143,6 +216,9 @@ public abstract class LedgerYiStoreWithRevoking<T extends ProtoCapsule> implemen
   @Override
   public void reset() {
     revokingDB.reset();
+    if (cache != null) {
+      cache.invalidateAll();
+    }
   }
 
   @Override
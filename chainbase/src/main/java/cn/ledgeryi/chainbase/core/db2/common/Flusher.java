@@ -4,7 +4,10 @@ import java.util.Map;
 
 public interface Flusher {
 
-  void flush(Map<WrappedByteArray, WrappedByteArray> batch);
+  /**
+   * write a batch of rows, keys are distinct by content and a null value deletes the key.
+   */
+  void flush(Map<byte[], byte[]> batch);
 
   void close();
 
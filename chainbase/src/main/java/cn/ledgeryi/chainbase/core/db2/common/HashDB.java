@@ -1,41 +1,152 @@
 package cn.ledgeryi.chainbase.core.db2.common;
 
-import java.util.HashMap;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+/**
+ * In-memory layer of a snapshot, written by the block thread and read lock-free by queries.
+ *
+ * <p>An open-addressing table of raw byte arrays: slot {@code 2i} holds a key and slot
+ * {@code 2i + 1} its value, a plain put stores the value bytes, a delete stores a tombstone. No
+ * {@link Key}/{@link Value} wrappers are kept per row, they are only created when the layer is
+ * read through the {@link DB} interface.
+ *
+ * <p>There is a single writer. A new row publishes its value before its key and a resize
+ * publishes a fully built table, so a concurrent reader sees a row either completely or not at
+ * all. Arrays stored in the table are owned by it and never mutated.
+ */
 public class HashDB implements DB<Key, Value> {
 
-  private Map<Key, Value> db = new HashMap<>();
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final Object DELETED = new Object();
+
+  private volatile AtomicReferenceArray<Object> table;
+  private volatile int size;
   private String name;
 
   public HashDB(String name) {
     this.name = name;
+    this.table = new AtomicReferenceArray<>(DEFAULT_CAPACITY << 1);
   }
 
   @Override
   public Value get(Key key) {
-    return db.get(key);
+    return get(key.getBytes());
+  }
+
+  /**
+   * @return the value recorded for the key, a {@link Value.Operator#DELETE} value for a deleted
+   *     key, or null if this layer does not hold the key.
+   */
+  public Value get(byte[] key) {
+    Object value = lookup(key);
+    return value == null ? null : toValue(value);
+  }
+
+  public boolean containsKey(byte[] key) {
+    return lookup(key) != null;
   }
 
   @Override
   public void put(Key key, Value value) {
-    db.put(key, value);
+    Object slot;
+    if (value.getOperator() == Value.Operator.PUT && value.getBytes() != null) {
+      slot = value.getBytes();
+    } else if (value.getOperator() == Value.Operator.DELETE && value.getBytes() == null) {
+      slot = DELETED;
+    } else {
+      slot = value;
+    }
+    store(key.getBytes(), slot);
+  }
+
+  /**
+   * Record a put of a copy of {@code value}.
+   */
+  public void put(byte[] key, byte[] value) {
+    store(Arrays.copyOf(key, key.length), Arrays.copyOf(value, value.length));
+  }
+
+  /**
+   * Record a delete of {@code key}.
+   */
+  public void delete(byte[] key) {
+    store(Arrays.copyOf(key, key.length), DELETED);
+  }
+
+  /**
+   * Copy every row of {@code from} into this layer, newer rows overriding older ones. Rows are
+   * immutable, so the arrays are shared rather than copied.
+   */
+  public void putAll(HashDB from) {
+    AtomicReferenceArray<Object> tab = from.table;
+    for (int i = 0; i < tab.length(); i += 2) {
+      Object key = tab.get(i);
+      if (key != null) {
+        store((byte[]) key, tab.get(i + 1));
+      }
+    }
+  }
+
+  /**
+   * Visit every row as raw arrays, the value is null for a deleted key. The arrays belong to this
+   * layer and must not be modified.
+   */
+  public void forEachRow(BiConsumer<byte[], byte[]> action) {
+    AtomicReferenceArray<Object> tab = table;
+    for (int i = 0; i < tab.length(); i += 2) {
+      Object key = tab.get(i);
+      if (key != null) {
+        action.accept((byte[]) key, valueBytes(tab.get(i + 1)));
+      }
+    }
+  }
+
+  public void forEachKey(Consumer<byte[]> action) {
+    AtomicReferenceArray<Object> tab = table;
+    for (int i = 0; i < tab.length(); i += 2) {
+      Object key = tab.get(i);
+      if (key != null) {
+        action.accept((byte[]) key);
+      }
+    }
   }
 
   @Override
   public long size() {
-    return db.size();
+    return size;
   }
 
   @Override
   public boolean isEmpty() {
-    return db.isEmpty();
+    return size == 0;
   }
 
   @Override
   public void remove(Key key) {
-    db.remove(key);
+    byte[] bytes = key.getBytes();
+    if (lookup(bytes) == null) {
+      return;
+    }
+
+    // open addressing cannot drop a row in place without readers missing its neighbours,
+    // rebuild the table instead, removal is not on any hot path.
+    AtomicReferenceArray<Object> tab = table;
+    AtomicReferenceArray<Object> rebuilt = new AtomicReferenceArray<>(tab.length());
+    for (int i = 0; i < tab.length(); i += 2) {
+      Object k = tab.get(i);
+      if (k != null && !Arrays.equals((byte[]) k, bytes)) {
+        insert(rebuilt, (byte[]) k, tab.get(i + 1));
+      }
+    }
+    table = rebuilt;
+    size = size - 1;
   }
 
   @Override
@@ -45,11 +156,106 @@ public class HashDB implements DB<Key, Value> {
 
   @Override
   public Iterator<Map.Entry<Key, Value>> iterator() {
-    return db.entrySet().iterator();
+    AtomicReferenceArray<Object> tab = table;
+    return new AbstractIterator<Map.Entry<Key, Value>>() {
+      private int i = 0;
+
+      @Override
+      protected Map.Entry<Key, Value> computeNext() {
+        while (i < tab.length()) {
+          Object key = tab.get(i);
+          Object value = tab.get(i + 1);
+          i += 2;
+          if (key != null) {
+            return Maps.immutableEntry(Key.of((byte[]) key), toValue(value));
+          }
+        }
+        return endOfData();
+      }
+    };
   }
 
   @Override
   public HashDB newInstance() {
     return new HashDB(name);
   }
+
+  private Object lookup(byte[] key) {
+    AtomicReferenceArray<Object> tab = table;
+    int mask = (tab.length() >> 1) - 1;
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      Object k = tab.get(i << 1);
+      if (k == null) {
+        return null;
+      }
+      if (Arrays.equals((byte[]) k, key)) {
+        return tab.get((i << 1) + 1);
+      }
+    }
+  }
+
+  private void store(byte[] key, Object value) {
+    if ((size + 1) << 2 > table.length()) {
+      resize();
+    }
+    if (insert(table, key, value)) {
+      size = size + 1;
+    }
+  }
+
+  private void resize() {
+    AtomicReferenceArray<Object> tab = table;
+    AtomicReferenceArray<Object> resized = new AtomicReferenceArray<>(tab.length() << 1);
+    for (int i = 0; i < tab.length(); i += 2) {
+      Object k = tab.get(i);
+      if (k != null) {
+        insert(resized, (byte[]) k, tab.get(i + 1));
+      }
+    }
+    table = resized;
+  }
+
+  /**
+   * @return true if a new row was added, false if an existing one was overwritten.
+   */
+  private static boolean insert(AtomicReferenceArray<Object> tab, byte[] key, Object value) {
+    int mask = (tab.length() >> 1) - 1;
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      Object k = tab.get(i << 1);
+      if (k == null) {
+        tab.lazySet((i << 1) + 1, value);
+        tab.lazySet(i << 1, key);
+        return true;
+      }
+      if (Arrays.equals((byte[]) k, key)) {
+        tab.lazySet((i << 1) + 1, value);
+        return false;
+      }
+    }
+  }
+
+  private static int hash(byte[] key) {
+    int h = Arrays.hashCode(key);
+    return h ^ (h >>> 16);
+  }
+
+  private static Value toValue(Object slot) {
+    if (slot == DELETED) {
+      return Value.of(Value.Operator.DELETE, null);
+    }
+    if (slot instanceof Value) {
+      return (Value) slot;
+    }
+    return Value.of(Value.Operator.PUT, (byte[]) slot);
+  }
+
+  private static byte[] valueBytes(Object slot) {
+    if (slot == DELETED) {
+      return null;
+    }
+    if (slot instanceof Value) {
+      return ((Value) slot).getBytes();
+    }
+    return (byte[]) slot;
+  }
 }
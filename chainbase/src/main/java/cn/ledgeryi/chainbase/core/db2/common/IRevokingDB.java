@@ -2,6 +2,7 @@ package cn.ledgeryi.chainbase.core.db2.common;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import cn.ledgeryi.common.core.exception.ItemNotFoundException;
 
@@ -17,6 +18,31 @@ public interface IRevokingDB extends Iterable<Map.Entry<byte[], byte[]>> {
 
   byte[] getUnchecked(byte[] key);
 
+  /**
+   * replace the value of {@code key} by {@code operator} applied to it, a null result deletes it.
+   */
+  default void update(byte[] key, UnaryOperator<byte[]> operator) {
+    byte[] value = operator.apply(getUnchecked(key));
+    if (value == null) {
+      delete(key);
+    } else {
+      put(key, value);
+    }
+  }
+
+  /**
+   * write every row of {@code rows}, a null value deletes its key.
+   */
+  default void batch(Map<WrappedByteArray, byte[]> rows) {
+    rows.forEach((key, value) -> {
+      if (value == null) {
+        delete(key.getBytes());
+      } else {
+        put(key.getBytes(), value);
+      }
+    });
+  }
+
   void close();
 
   void reset();
@@ -4,8 +4,6 @@ import cn.ledgeryi.chainbase.core.db.common.iterator.DBIterator;
 import cn.ledgeryi.chainbase.common.storage.WriteOptionsWrapper;
 import cn.ledgeryi.chainbase.common.storage.leveldb.LevelDbDataSourceImpl;
 import cn.ledgeryi.chainbase.common.utils.DBConfig;
-import com.google.common.collect.Maps;
-import java.util.HashMap;
 import java.util.Map;
 import lombok.Getter;
 
@@ -56,11 +54,8 @@ public class LevelDB implements DB<byte[], byte[]>, Flusher {
   }
 
   @Override
-  public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
-    Map<byte[], byte[]> rows = batch.entrySet().stream()
-        .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
-        .collect(HashMap::new, (m, k) -> m.put(k.getKey(), k.getValue()), HashMap::putAll);
-    db.updateByBatch(rows, writeOptions);
+  public void flush(Map<byte[], byte[]> batch) {
+    db.updateByBatch(batch, writeOptions);
   }
 
   @Override
@@ -4,8 +4,6 @@ import cn.ledgeryi.chainbase.common.storage.WriteOptionsWrapper;
 import cn.ledgeryi.chainbase.common.storage.rocksdb.RocksDbDataSourceImpl;
 import cn.ledgeryi.chainbase.common.utils.DBConfig;
 import cn.ledgeryi.chainbase.core.db.common.iterator.DBIterator;
-import com.google.common.collect.Maps;
-import java.util.HashMap;
 import java.util.Map;
 import lombok.Getter;
 
@@ -57,11 +55,8 @@ public class RocksDB implements DB<byte[], byte[]>, Flusher {
   }
 
   @Override
-  public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
-    Map<byte[], byte[]> rows = batch.entrySet().stream()
-        .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
-        .collect(HashMap::new, (m, k) -> m.put(k.getKey(), k.getValue()), HashMap::putAll);
-    db.updateByBatch(rows, optionsWrapper);
+  public void flush(Map<byte[], byte[]> batch) {
+    db.updateByBatch(batch, optionsWrapper);
   }
 
   @Override
@@ -86,8 +86,8 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
   }
 
   @Override
-  public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
-    batch.forEach((k, v) -> this.put(k.getBytes(), v.getBytes()));
+  public void flush(Map<byte[], byte[]> batch) {
+    batch.forEach(this::put);
   }
 
   @Override
@@ -8,8 +8,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import cn.ledgeryi.common.utils.ByteUtil;
 import cn.ledgeryi.chainbase.core.db2.common.IRevokingDB;
@@ -17,10 +19,23 @@ import cn.ledgeryi.chainbase.core.db2.common.LevelDB;
 import cn.ledgeryi.chainbase.core.db2.common.RocksDB;
 import cn.ledgeryi.common.core.exception.ItemNotFoundException;
 
+/**
+ * Revoking db on top of the snapshot chain.
+ *
+ * <p>Writers (block application, {@link SnapshotManager}) serialize on this monitor, readers do
+ * not: a read pins the current (volatile) head once and walks that chain without locking, so RPC
+ * queries keep running while a block is being applied. Snapshot layers are safe to read
+ * concurrently with a single writer, a reader therefore observes either the value before or after
+ * an in-flight write.
+ *
+ * <p>A thread running inside an {@link ExecutionView} reads through the view and buffers its
+ * writes there, the chain itself is left untouched until the view is committed.
+ */
 public class Chainbase implements IRevokingDB {
 
   private ThreadLocal<Boolean> mode = new ThreadLocal<>();
-  private Snapshot head;
+  private volatile Snapshot head;
+  private final SnapshotIndex index = new SnapshotIndex();
 
   public Chainbase(Snapshot head) {
     this.head = head;
@@ -36,15 +51,20 @@ public class Chainbase implements IRevokingDB {
     this.mode.set(mode);
   }
 
+  private boolean isHeadMode() {
+    return mode.get() == null || mode.get();
+  }
+
   private Snapshot head() {
-    if (mode.get() == null || mode.get()) {
-      return head;
+    Snapshot current = head;
+    if (isHeadMode()) {
+      return current;
     } else {
-      return head.getSolidity();
+      return current.getSolidity();
     }
   }
 
-  public synchronized Snapshot getHead() {
+  public Snapshot getHead() {
     return head();
   }
 
@@ -52,6 +72,48 @@ public class Chainbase implements IRevokingDB {
     this.head = head;
   }
 
+  synchronized void advance() {
+    head = head.advance();
+  }
+
+  synchronized void retreat() {
+    Snapshot dropped = head;
+    head = dropped.retreat();
+    index.retreat(dropped);
+  }
+
+  /**
+   * merge the head into its previous snapshot and make the previous one the head.
+   */
+  synchronized void merge() {
+    Snapshot from = head;
+    Snapshot to = from.getPrevious();
+    if (Snapshot.isRoot(to)) {
+      to.merge(from);
+      index.flush(from);
+    } else {
+      index.merge(from, to);
+      to.merge(from);
+    }
+    head = to;
+  }
+
+  /**
+   * unlink the oldest snapshots once they have been persisted into the root.
+   */
+  synchronized void flushed(SnapshotRoot root, List<Snapshot> snapshots) {
+    Snapshot last = snapshots.get(snapshots.size() - 1);
+    index.flush(snapshots);
+    root.resetSolidity(last);
+    if (head == last) {
+      head = root;
+    } else {
+      Snapshot next = last.getNext();
+      next.setPrevious(root);
+      root.setNext(next);
+    }
+  }
+
   /**
    * close the database.
    */
@@ -65,20 +127,72 @@ public class Chainbase implements IRevokingDB {
     head().reset();
     head().close();
     head = head.getRoot().newInstance();
+    index.clear();
   }
 
   @Override
-  public synchronized void put(byte[] key, byte[] value) {
-    head().put(key, value);
+  public void put(byte[] key, byte[] value) {
+    ExecutionView view = ExecutionView.current();
+    if (view != null) {
+      view.put(this, key, value);
+      return;
+    }
+    write(key, value);
+  }
+
+  private synchronized void write(byte[] key, byte[] value) {
+    Snapshot target = head();
+    boolean held = index.holds(target, key);
+    target.put(key, value);
+    index.put(target, key, held, target == head);
   }
 
   @Override
-  public synchronized void delete(byte[] key) {
-    head().remove(key);
+  public void delete(byte[] key) {
+    ExecutionView view = ExecutionView.current();
+    if (view != null) {
+      view.delete(this, key);
+      return;
+    }
+    remove(key);
   }
 
+  private synchronized void remove(byte[] key) {
+    Snapshot target = head();
+    boolean held = index.holds(target, key);
+    target.remove(key);
+    index.put(target, key, held, target == head);
+  }
+
+  /**
+   * Write every row of {@code rows} under one lock, a null value deletes its key.
+   */
   @Override
-  public synchronized byte[] get(byte[] key) throws ItemNotFoundException {
+  public void batch(Map<WrappedByteArray, byte[]> rows) {
+    ExecutionView view = ExecutionView.current();
+    if (view != null) {
+      rows.forEach((key, value) -> {
+        if (value == null) {
+          view.delete(this, key.getBytes());
+        } else {
+          view.put(this, key.getBytes(), value);
+        }
+      });
+      return;
+    }
+    synchronized (this) {
+      rows.forEach((key, value) -> {
+        if (value == null) {
+          remove(key.getBytes());
+        } else {
+          write(key.getBytes(), value);
+        }
+      });
+    }
+  }
+
+  @Override
+  public byte[] get(byte[] key) throws ItemNotFoundException {
     byte[] value = getUnchecked(key);
     if (value == null) {
       throw new ItemNotFoundException();
@@ -87,29 +201,62 @@ public class Chainbase implements IRevokingDB {
     return value;
   }
 
+  /**
+   * Replace the value of {@code key} by {@code operator} applied to it, a null result deletes the
+   * key. Inside an {@link ExecutionView} the operator is only applied when the view is committed.
+   */
+  @Override
+  public void update(byte[] key, UnaryOperator<byte[]> operator) {
+    ExecutionView view = ExecutionView.current();
+    if (view != null) {
+      view.update(this, key, operator);
+      return;
+    }
+    synchronized (this) {
+      byte[] value = operator.apply(read(key));
+      if (value == null) {
+        remove(key);
+      } else {
+        write(key, value);
+      }
+    }
+  }
+
   @Override
-  public synchronized byte[] getUnchecked(byte[] key) {
-    return head().get(key);
+  public byte[] getUnchecked(byte[] key) {
+    ExecutionView view = ExecutionView.current();
+    if (view != null && isHeadMode()) {
+      return view.get(this, key);
+    }
+    return read(key);
+  }
+
+  byte[] read(byte[] key) {
+    Snapshot snapshot = head();
+    // the index tracks the chain below the newest head only, solidity reads walk the stack
+    return snapshot == head ? index.get(snapshot, key) : snapshot.get(key);
   }
 
   @Override
-  public synchronized boolean has(byte[] key) {
+  public boolean has(byte[] key) {
     return getUnchecked(key) != null;
   }
 
   @Override
-  public synchronized Iterator<Map.Entry<byte[], byte[]>> iterator() {
+  public Iterator<Map.Entry<byte[], byte[]>> iterator() {
+    unsupportedInView();
     return head().iterator();
   }
 
   //for blockstore
   @Override
   public Set<byte[]> getlatestValues(long limit) {
+    unsupportedInView();
     return getlatestValues(head(), limit);
   }
 
   //for blockstore
-  private synchronized Set<byte[]> getlatestValues(Snapshot head, long limit) {
+  private Set<byte[]> getlatestValues(Snapshot head, long limit) {
     if (limit <= 0) {
       return Collections.emptySet();
     }
@@ -178,6 +325,14 @@ public class Chainbase implements IRevokingDB {
 
   @Override
   public Set<byte[]> getValuesNext(byte[] key, long limit) {
+    unsupportedInView();
     return getValuesNext(head(), key, limit);
   }
+
+  private void unsupportedInView() {
+    ExecutionView view = ExecutionView.current();
+    if (view != null) {
+      view.unsupported();
+    }
+  }
 }
@@ -0,0 +1,171 @@
+package cn.ledgeryi.chainbase.core.db2.core;
+
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.UnaryOperator;
+
+/**
+ * Private read/write set of one speculative transaction execution.
+ *
+ * <p>While a view is entered on a thread, every {@link Chainbase} accessed by that thread records
+ * the values it reads from the chain into the view and buffers its writes there instead of
+ * touching the snapshots. Once executed, the view is {@link #validate() validated}: it is still
+ * valid if every key it read holds the same value in the chain, in which case
+ * {@link #commit() committing} its writes leaves the chain exactly as executing the transaction
+ * at this point would have.
+ *
+ * <p>Updates made through {@link Chainbase#update} are kept as functions and applied to the chain
+ * value at commit, so counters bumped by every transaction do not make them conflict.
+ */
+public final class ExecutionView {
+
+  private static final ThreadLocal<ExecutionView> CURRENT = new ThreadLocal<>();
+  private static final byte[] ABSENT = new byte[0];
+
+  private final Map<Chainbase, Map<WrappedByteArray, byte[]>> reads = new IdentityHashMap<>();
+  private final Map<Chainbase, Map<WrappedByteArray, Write>> writes = new IdentityHashMap<>();
+  private boolean unsupported;
+
+  static ExecutionView current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Run {@code task} with this view entered on the calling thread.
+   */
+  public <V> V execute(Callable<V> task) throws Exception {
+    ExecutionView previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return task.call();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  /**
+   * @return false if the execution did something the view cannot replay, it must then be redone
+   *     against the chain.
+   */
+  public boolean isSupported() {
+    return !unsupported;
+  }
+
+  /**
+   * @return whether every value read by the execution is still the one in the chain.
+   */
+  public boolean validate() {
+    if (unsupported) {
+      return false;
+    }
+    for (Map.Entry<Chainbase, Map<WrappedByteArray, byte[]>> db : reads.entrySet()) {
+      for (Map.Entry<WrappedByteArray, byte[]> read : db.getValue().entrySet()) {
+        byte[] value = db.getKey().getUnchecked(read.getKey().getBytes());
+        boolean same = read.getValue() == ABSENT ? value == null : Arrays.equals(value, read.getValue());
+        if (!same) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply the buffered writes to the chain, must be called without a view entered.
+   */
+  public void commit() {
+    writes.forEach((db, rows) -> rows.forEach((key, write) -> {
+      if (write.operator != null) {
+        db.update(key.getBytes(), write.operator);
+      } else if (write.value == null) {
+        db.delete(key.getBytes());
+      } else {
+        db.put(key.getBytes(), write.value);
+      }
+    }));
+  }
+
+  public int getReadCount() {
+    return reads.values().stream().mapToInt(Map::size).sum();
+  }
+
+  public int getWriteCount() {
+    return writes.values().stream().mapToInt(Map::size).sum();
+  }
+
+  byte[] get(Chainbase db, byte[] key) {
+    WrappedByteArray k = WrappedByteArray.of(key);
+    Map<WrappedByteArray, Write> rows = writes.get(db);
+    Write write = rows == null ? null : rows.get(k);
+    if (write == null) {
+      return read(db, k);
+    }
+    if (write.operator == null) {
+      return write.value;
+    }
+    return write.operator.apply(read(db, k));
+  }
+
+  void put(Chainbase db, byte[] key, byte[] value) {
+    rows(db).put(WrappedByteArray.copyOf(key), new Write(Arrays.copyOf(value, value.length), null));
+  }
+
+  void delete(Chainbase db, byte[] key) {
+    rows(db).put(WrappedByteArray.copyOf(key), new Write(null, null));
+  }
+
+  void update(Chainbase db, byte[] key, UnaryOperator<byte[]> operator) {
+    Map<WrappedByteArray, Write> rows = rows(db);
+    WrappedByteArray k = WrappedByteArray.copyOf(key);
+    Write write = rows.get(k);
+    if (write == null) {
+      rows.put(k, new Write(null, operator));
+    } else if (write.operator == null) {
+      rows.put(k, new Write(operator.apply(write.value), null));
+    } else {
+      UnaryOperator<byte[]> first = write.operator;
+      rows.put(k, new Write(null, value -> operator.apply(first.apply(value))));
+    }
+  }
+
+  /**
+   * Record an access the view cannot track, such as an iteration over the chain.
+   */
+  void unsupported() {
+    unsupported = true;
+  }
+
+  private byte[] read(Chainbase db, WrappedByteArray key) {
+    Map<WrappedByteArray, byte[]> rows = reads.computeIfAbsent(db, k -> new LinkedHashMap<>());
+    byte[] value = rows.get(key);
+    if (value == null) {
+      value = db.read(key.getBytes());
+      rows.put(WrappedByteArray.copyOf(key.getBytes()), value == null ? ABSENT : value);
+      return value;
+    }
+    return value == ABSENT ? null : value;
+  }
+
+  private Map<WrappedByteArray, Write> rows(Chainbase db) {
+    return writes.computeIfAbsent(db, k -> new LinkedHashMap<>());
+  }
+
+  private static final class Write {
+
+    private final byte[] value;
+    private final UnaryOperator<byte[]> operator;
+
+    private Write(byte[] value, UnaryOperator<byte[]> operator) {
+      this.value = value;
+      this.operator = operator;
+    }
+  }
+}
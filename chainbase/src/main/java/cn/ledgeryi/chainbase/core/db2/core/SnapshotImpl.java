@@ -39,20 +39,20 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
     Preconditions.checkNotNull(key, "key in db is not null.");
     Preconditions.checkNotNull(value, "value in db is not null.");
 
-    db.put(Key.copyOf(key), Value.copyOf(Value.Operator.PUT, value));
+    getLayer().put(key, value);
   }
 
   @Override
   public void remove(byte[] key) {
     Preconditions.checkNotNull(key, "key in db is not null.");
-    db.put(Key.of(key), Value.of(Value.Operator.DELETE, null));
+    getLayer().delete(key);
   }
 
   private byte[] get(Snapshot head, byte[] key) {
     Snapshot snapshot = head;
     Value value;
     while (Snapshot.isImpl(snapshot)) {
-      if ((value = ((SnapshotImpl) snapshot).db.get(Key.of(key))) != null) {
+      if ((value = ((SnapshotImpl) snapshot).getLayer().get(key)) != null) {
         return value.getBytes();
       }
 
@@ -77,7 +77,11 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   @Override
   public void merge(Snapshot from) {
     SnapshotImpl fromImpl = (SnapshotImpl) from;
-    Streams.stream(fromImpl.db).forEach(e -> db.put(e.getKey(), e.getValue()));
+    getLayer().putAll(fromImpl.getLayer());
+  }
+
+  HashDB getLayer() {
+    return (HashDB) db;
   }
 
   @Override
@@ -104,7 +108,7 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
             e -> !keys.contains(WrappedByteArray.of(e.getKey()))));
   }
 
-  synchronized void collect(Map<WrappedByteArray, WrappedByteArray> all) {
+  void collect(Map<WrappedByteArray, WrappedByteArray> all) {
     Snapshot next = getRoot().getNext();
     while (next != null) {
       Streams.stream(((SnapshotImpl) next).db)
@@ -0,0 +1,145 @@
+package cn.ledgeryi.chainbase.core.db2.core;
+
+import cn.ledgeryi.chainbase.core.db2.common.Value;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merged key index over the in-memory snapshots of one {@link Chainbase}.
+ *
+ * <p>For every key held by a {@link SnapshotImpl} layer it records how many layers hold it and
+ * the newest of them. A key missing from the index is not in memory at all and is read straight
+ * from the root, a key whose newest layer is known is read from that layer; only when the newest
+ * layer is unknown (after a revoke) does a lookup walk the stack.
+ *
+ * <p>Mutations come from the writer that owns the snapshot chain (the block thread, or the flush
+ * thread while the block thread waits on it). Readers never rely on the index alone: a layer that
+ * does not hold the key makes them fall back to the walk, so a lookup racing a write returns
+ * either the old or the new value.
+ */
+class SnapshotIndex {
+
+  private final Map<WrappedByteArray, Entry> index = new ConcurrentHashMap<>();
+
+  byte[] get(Snapshot head, byte[] key) {
+    if (!Snapshot.isImpl(head)) {
+      return head.get(key);
+    }
+
+    Entry entry = index.get(WrappedByteArray.of(key));
+    if (entry == null) {
+      return head.getRoot().get(key);
+    }
+
+    Snapshot newest = entry.newest;
+    if (Snapshot.isImpl(newest)) {
+      Value value = ((SnapshotImpl) newest).getLayer().get(key);
+      if (value != null) {
+        return value.getBytes();
+      }
+    }
+
+    return head.get(key);
+  }
+
+  boolean holds(Snapshot snapshot, byte[] key) {
+    return Snapshot.isImpl(snapshot) && ((SnapshotImpl) snapshot).getLayer().containsKey(key);
+  }
+
+  /**
+   * Record a write of {@code key} to {@code target}.
+   *
+   * @param held whether {@code target} already held the key before the write
+   * @param tip whether {@code target} is the newest snapshot of the chain
+   */
+  void put(Snapshot target, byte[] key, boolean held, boolean tip) {
+    if (!Snapshot.isImpl(target)) {
+      return;
+    }
+
+    WrappedByteArray k = WrappedByteArray.of(key);
+    Entry entry = index.get(k);
+    if (entry == null) {
+      index.put(WrappedByteArray.copyOf(key), new Entry(target));
+      return;
+    }
+
+    if (!held) {
+      ++entry.layers;
+    }
+    entry.newest = tip ? target : null;
+  }
+
+  /**
+   * Called before {@code from} is merged into the snapshot {@code to} right below it.
+   */
+  void merge(Snapshot from, Snapshot to) {
+    ((SnapshotImpl) from).getLayer().forEachKey(key -> {
+      Entry entry = index.get(WrappedByteArray.of(key));
+      if (entry == null) {
+        return;
+      }
+
+      if (holds(to, key)) {
+        --entry.layers;
+      }
+      if (entry.newest == from) {
+        entry.newest = to;
+      }
+    });
+  }
+
+  /**
+   * Called after {@code dropped} has been popped off the chain.
+   */
+  void retreat(Snapshot dropped) {
+    release(dropped);
+  }
+
+  /**
+   * Called after {@code snapshots} have been persisted into the root.
+   */
+  void flush(List<Snapshot> snapshots) {
+    snapshots.forEach(this::release);
+  }
+
+  void flush(Snapshot snapshot) {
+    release(snapshot);
+  }
+
+  void clear() {
+    index.clear();
+  }
+
+  private void release(Snapshot snapshot) {
+    if (!Snapshot.isImpl(snapshot)) {
+      return;
+    }
+
+    ((SnapshotImpl) snapshot).getLayer().forEachKey(key -> {
+      WrappedByteArray k = WrappedByteArray.of(key);
+      Entry entry = index.get(k);
+      if (entry == null) {
+        return;
+      }
+
+      if (--entry.layers <= 0) {
+        index.remove(k);
+      } else if (entry.newest == snapshot) {
+        entry.newest = null;
+      }
+    });
+  }
+
+  private static final class Entry {
+
+    private volatile Snapshot newest;
+    private int layers = 1;
+
+    private Entry(Snapshot newest) {
+      this.newest = newest;
+    }
+  }
+}
@@ -3,10 +3,11 @@ package cn.ledgeryi.chainbase.core.db2.core;
 import cn.ledgeryi.chainbase.common.storage.WriteOptionsWrapper;
 import cn.ledgeryi.chainbase.common.utils.DBConfig;
 import cn.ledgeryi.chainbase.core.db.RevokingDatabase;
-import cn.ledgeryi.chainbase.core.db2.common.DB;
+import cn.ledgeryi.chainbase.core.db2.common.HashDB;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -16,9 +17,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import lombok.Getter;
@@ -26,9 +27,7 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import cn.ledgeryi.chainbase.core.db2.common.IRevokingDB;
-import cn.ledgeryi.chainbase.core.db2.common.Key;
 import cn.ledgeryi.chainbase.core.db2.common.Value;
-import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
 import cn.ledgeryi.common.core.exception.RevokingStoreIllegalStateException;
 import cn.ledgeryi.chainbase.core.store.CheckTmpStore;
 
@@ -38,6 +37,9 @@ public class SnapshotManager implements RevokingDatabase {
   public static final int DEFAULT_MAX_FLUSH_COUNT = 500;
   public static final int DEFAULT_MIN_FLUSH_COUNT = 1;
   private static final int DEFAULT_STACK_MAX_SIZE = 256;
+  // checkpoint keys: JOURNAL_PREFIX, 8-byte segment number, encoded db name, key
+  private static final byte JOURNAL_PREFIX = (byte) 0xff;
+  private static final int JOURNAL_HEADER_LENGTH = 9;
   @Getter
   private List<Chainbase> dbs = new ArrayList<>();
   @Getter
@@ -56,6 +58,11 @@ public class SnapshotManager implements RevokingDatabase {
 
   private Map<String, ListeningExecutorService> flushServices = new HashMap<>();
 
+  private volatile ListenableFuture<?> pendingRefresh;
+  private volatile Throwable refreshFailure;
+
+  private long journalSequence = 0;
+
   @Autowired
   @Setter
   @Getter
@@ -115,12 +122,12 @@ public class SnapshotManager implements RevokingDatabase {
   }
 
   private void advance() {
-    dbs.forEach(db -> db.setHead(db.getHead().advance()));
+    dbs.forEach(Chainbase::advance);
     ++size;
   }
 
   private void retreat() {
-    dbs.forEach(db -> db.setHead(db.getHead().retreat()));
+    dbs.forEach(Chainbase::retreat);
     --size;
   }
 
@@ -134,8 +141,8 @@ public class SnapshotManager implements RevokingDatabase {
       return;
     }
 
-    dbs.forEach(db -> db.getHead().getPrevious().merge(db.getHead()));
-    retreat();
+    dbs.forEach(Chainbase::merge);
+    --size;
     --activeSession;
   }
 
@@ -224,7 +231,11 @@ public class SnapshotManager implements RevokingDatabase {
   public void shutdown() {
     System.err.println("******** begin to pop revokingDb ********");
     System.err.println("******** before revokingDb size:" + size);
-    checkTmpStore.close();
+    try {
+      awaitRefresh();
+    } finally {
+      checkTmpStore.close();
+    }
     System.err.println("******** end to pop revokingDb ********");
   }
 
@@ -240,46 +251,68 @@ public class SnapshotManager implements RevokingDatabase {
     return flushCount >= maxFlushCount;
   }
 
-  private void refresh() {
-    List<ListenableFuture<?>> futures = new ArrayList<>(dbs.size());
-    for (Chainbase db : dbs) {
-      futures.add(flushServices.get(db.getDbName()).submit(() -> refreshOne(db)));
-    }
-    Future<?> future = Futures.allAsList(futures);
-    try {
-      future.get();
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-    } catch (ExecutionException e) {
-      log.error(e.getMessage(), e);
+  private ListenableFuture<?> refresh(Map<Chainbase, List<Snapshot>> flushed,
+      Map<Chainbase, HashDB> batches, Map<byte[], byte[]> journal) {
+    List<ListenableFuture<?>> futures = new ArrayList<>(flushed.size());
+    for (Map.Entry<Chainbase, List<Snapshot>> e : flushed.entrySet()) {
+      Chainbase db = e.getKey();
+      futures.add(flushServices.get(db.getDbName())
+          .submit(() -> refreshOne(db, e.getValue(), batches.get(db))));
     }
-  }
 
-  private void refreshOne(Chainbase db) {
-    if (Snapshot.isRoot(db.getHead())) {
-      return;
-    }
+    // the journal segment is only dropped once every db has persisted its part of it
+    return Futures.transform(Futures.allAsList(futures), results -> {
+      deleteCheckpoint(journal);
+      return null;
+    }, MoreExecutors.directExecutor());
+  }
 
-    List<Snapshot> snapshots = new ArrayList<>();
+  private void refreshOne(Chainbase db, List<Snapshot> snapshots, HashDB batch) {
+    SnapshotRoot root = (SnapshotRoot) snapshots.get(0).getRoot();
+    root.flush(batch);
+    db.flushed(root, snapshots);
+  }
 
-    SnapshotRoot root = (SnapshotRoot) db.getHead().getRoot();
-    Snapshot next = root;
-    for (int i = 0; i < flushCount; ++i) {
-      next = next.getNext();
-      snapshots.add(next);
+  /**
+   * wait until the previous flush has been persisted.
+   *
+   * @throws IllegalStateException if persisting it failed, then and on every later call: the dbs
+   *     that failed were not relinked to their root and the journal segment is kept for
+   *     {@link #check()}, nothing may be flushed on top of that.
+   */
+  public void awaitRefresh() {
+    if (refreshFailure != null) {
+      throw new IllegalStateException("refresh failed, the node must be restarted",
+          refreshFailure);
+    }
+    ListenableFuture<?> future = pendingRefresh;
+    if (future == null) {
+      return;
     }
 
-    root.merge(snapshots);
-
-    root.resetSolidity();
-    if (db.getHead() == next) {
-      db.setHead(root);
-    } else {
-      next.getNext().setPrevious(root);
-      root.setNext(next.getNext());
+    try {
+      future.get();
+      pendingRefresh = null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for the refresh", e);
+    } catch (ExecutionException e) {
+      pendingRefresh = null;
+      refreshFailure = e.getCause();
+      log.error("refresh failed", refreshFailure);
+      throw new IllegalStateException("refresh failed, the node must be restarted",
+          refreshFailure);
     }
   }
 
+  /**
+   * Persist the oldest {@code flushCount} snapshots into the roots.
+   *
+   * <p>The block thread only squashes the snapshots of each db and writes them to the
+   * checkpoint store as one synced journal segment, the writes to the dbs themselves run on the
+   * flush executors while the next block is applied. The segment is deleted once every db has
+   * been refreshed, so at most one segment is live and {@link #check()} replays it after a crash.
+   */
   public void flush() {
     if (unChecked) {
       return;
@@ -287,56 +320,56 @@ public class SnapshotManager implements RevokingDatabase {
 
     if (shouldBeRefreshed()) {
       long start = System.currentTimeMillis();
-      deleteCheckpoint();
-      createCheckpoint();
+      awaitRefresh();
+      long waitEnd = System.currentTimeMillis();
+
+      Map<Chainbase, List<Snapshot>> flushed = new HashMap<>();
+      Map<Chainbase, HashDB> batches = new HashMap<>();
+      for (Chainbase db : dbs) {
+        if (Snapshot.isRoot(db.getHead())) {
+          continue;
+        }
+
+        List<Snapshot> snapshots = new ArrayList<>(flushCount);
+        Snapshot next = db.getHead().getRoot();
+        for (int i = 0; i < flushCount; ++i) {
+          next = next.getNext();
+          snapshots.add(next);
+        }
+        flushed.put(db, snapshots);
+        batches.put(db, SnapshotRoot.squash(snapshots));
+      }
+
+      Map<byte[], byte[]> journal = createCheckpoint(batches);
       long checkPointEnd = System.currentTimeMillis();
-      refresh();
+      pendingRefresh = refresh(flushed, batches, journal);
       flushCount = 0;
-      log.debug("flush cost:{}, create checkpoint cost:{}, refresh cost:{}",
+      log.debug("flush cost:{}, wait previous refresh cost:{}, create checkpoint cost:{}",
           System.currentTimeMillis() - start,
-          checkPointEnd - start,
-          System.currentTimeMillis() - checkPointEnd
+          waitEnd - start,
+          checkPointEnd - waitEnd
       );
     }
   }
 
-  private void createCheckpoint() {
-    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
-    for (Chainbase db : dbs) {
-      Snapshot head = db.getHead();
-      if (Snapshot.isRoot(head)) {
-        return;
-      }
-
-      String dbName = db.getDbName();
-      Snapshot next = head.getRoot();
-      for (int i = 0; i < flushCount; ++i) {
-        next = next.getNext();
-        SnapshotImpl snapshot = (SnapshotImpl) next;
-        DB<Key, Value> keyValueDB = snapshot.getDb();
-        for (Map.Entry<Key, Value> e : keyValueDB) {
-          Key k = e.getKey();
-          Value v = e.getValue();
-          batch.put(WrappedByteArray.of(Bytes.concat(simpleEncode(dbName), k.getBytes())),
-              WrappedByteArray.of(v.encode()));
-        }
-      }
+  private Map<byte[], byte[]> createCheckpoint(Map<Chainbase, HashDB> batches) {
+    byte[] segment = Bytes.concat(new byte[]{JOURNAL_PREFIX}, Longs.toByteArray(++journalSequence));
+    Map<byte[], byte[]> journal = new HashMap<>();
+    for (Map.Entry<Chainbase, HashDB> e : batches.entrySet()) {
+      byte[] prefix = Bytes.concat(segment, simpleEncode(e.getKey().getDbName()));
+      e.getValue().forEachRow((k, v) -> journal.put(Bytes.concat(prefix, k),
+          v == null ? new byte[]{Value.Operator.DELETE.getValue()}
+              : Bytes.concat(new byte[]{Value.Operator.PUT.getValue()}, v)));
     }
 
-    checkTmpStore.getDbSource().updateByBatch(batch.entrySet().stream()
-        .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
-        .collect(HashMap::new, (m, k) -> m.put(k.getKey(), k.getValue()), HashMap::putAll),
+    checkTmpStore.getDbSource().updateByBatch(journal,
         WriteOptionsWrapper.getInstance().sync(DBConfig.isDbSync()));
+    return journal;
   }
 
-  private void deleteCheckpoint() {
-    Map<byte[], byte[]> hmap = new HashMap<byte[], byte[]>();
-    if (!checkTmpStore.getDbSource().allKeys().isEmpty()) {
-      for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
-        hmap.put(e.getKey(), null);
-      }
-    }
-
+  private void deleteCheckpoint(Map<byte[], byte[]> journal) {
+    Map<byte[], byte[]> hmap = new HashMap<>(journal.size());
+    journal.keySet().forEach(k -> hmap.put(k, null));
     checkTmpStore.getDbSource().updateByBatch(hmap, WriteOptionsWrapper.getInstance()
         .sync(DBConfig.isDbSync()));
   }
@@ -354,27 +387,46 @@ public class SnapshotManager implements RevokingDatabase {
       Map<String, Chainbase> dbMap = dbs.stream()
           .map(db -> Maps.immutableEntry(db.getDbName(), db))
           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-      advance();
+      // replay the journal segments oldest first, entries written before the journal
+      // existed carry no segment number and go first.
+      TreeMap<Long, List<Map.Entry<byte[], byte[]>>> segments = new TreeMap<>();
+      Map<byte[], byte[]> replayed = new HashMap<>();
       for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
         byte[] key = e.getKey();
-        byte[] value = e.getValue();
-        String db = simpleDecode(key);
-        if (dbMap.get(db) == null) {
-          continue;
+        long sequence = -1;
+        if (key.length > JOURNAL_HEADER_LENGTH && key[0] == JOURNAL_PREFIX) {
+          sequence = Longs.fromByteArray(Arrays.copyOfRange(key, 1, JOURNAL_HEADER_LENGTH));
+          key = Arrays.copyOfRange(key, JOURNAL_HEADER_LENGTH, key.length);
         }
-        byte[] realKey = Arrays.copyOfRange(key, db.getBytes().length + 4, key.length);
+        segments.computeIfAbsent(sequence, s -> new ArrayList<>())
+            .add(Maps.immutableEntry(key, e.getValue()));
+        replayed.put(e.getKey(), null);
+        journalSequence = Math.max(journalSequence, sequence);
+      }
 
-        byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
-        if (realValue != null) {
-          dbMap.get(db).getHead().put(realKey, realValue);
-        } else {
-          dbMap.get(db).getHead().remove(realKey);
+      advance();
+      for (List<Map.Entry<byte[], byte[]>> entries : segments.values()) {
+        for (Map.Entry<byte[], byte[]> e : entries) {
+          byte[] key = e.getKey();
+          byte[] value = e.getValue();
+          String db = simpleDecode(key);
+          if (dbMap.get(db) == null) {
+            continue;
+          }
+          byte[] realKey = Arrays.copyOfRange(key, db.getBytes().length + 4, key.length);
+
+          byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
+          if (realValue != null) {
+            dbMap.get(db).put(realKey, realValue);
+          } else {
+            dbMap.get(db).delete(realKey);
+          }
         }
-
       }
 
       dbs.forEach(db -> db.getHead().getRoot().merge(db.getHead()));
       retreat();
+      deleteCheckpoint(replayed);
     }
 
     unChecked = false;
@@ -1,21 +1,18 @@
 package cn.ledgeryi.chainbase.core.db2.core;
 
 import cn.ledgeryi.chainbase.core.db2.common.DB;
-import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Streams;
+import cn.ledgeryi.chainbase.core.db2.common.HashDB;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import lombok.Getter;
 import cn.ledgeryi.chainbase.core.db2.common.Flusher;
 
 public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Getter
-  private Snapshot solidity;
+  private volatile Snapshot solidity;
 
   public SnapshotRoot(DB<byte[], byte[]> db) {
     this.db = db;
@@ -39,24 +36,31 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Override
   public void merge(Snapshot from) {
-    SnapshotImpl snapshot = (SnapshotImpl) from;
-    Map<WrappedByteArray, WrappedByteArray> batch = Streams.stream(snapshot.db)
-        .map(e -> Maps.immutableEntry(WrappedByteArray.of(e.getKey().getBytes()),
-            WrappedByteArray.of(e.getValue().getBytes())))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-    ((Flusher) db).flush(batch);
+    flush(((SnapshotImpl) from).getLayer());
   }
 
   public void merge(List<Snapshot> snapshots) {
-    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+    flush(squash(snapshots));
+  }
+
+  /**
+   * squash consecutive snapshots, oldest first, into a single layer.
+   */
+  static HashDB squash(List<Snapshot> snapshots) {
+    if (snapshots.size() == 1) {
+      return ((SnapshotImpl) snapshots.get(0)).getLayer();
+    }
+
+    HashDB merged = new HashDB(snapshots.get(0).getDbName());
     for (Snapshot snapshot : snapshots) {
-      SnapshotImpl from = (SnapshotImpl) snapshot;
-      Streams.stream(from.db)
-          .map(e -> Maps.immutableEntry(WrappedByteArray.of(e.getKey().getBytes()),
-              WrappedByteArray.of(e.getValue().getBytes())))
-          .forEach(e -> batch.put(e.getKey(), e.getValue()));
+      merged.putAll(((SnapshotImpl) snapshot).getLayer());
     }
+    return merged;
+  }
 
+  void flush(HashDB layer) {
+    Map<byte[], byte[]> batch = new HashMap<>((int) (layer.size() / 0.75f) + 1);
+    layer.forEachRow(batch::put);
     ((Flusher) db).flush(batch);
   }
 
@@ -86,12 +90,22 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
   }
 
   @Override
-  public void resetSolidity() {
+  public synchronized void resetSolidity() {
     solidity = this;
   }
 
+  /**
+   * reset the solidity to the root if it still is {@code expected}, the block thread may have
+   * moved it past a snapshot that is being flushed in the background.
+   */
+  synchronized void resetSolidity(Snapshot expected) {
+    if (solidity == expected) {
+      solidity = this;
+    }
+  }
+
   @Override
-  public void updateSolidity() {
+  public synchronized void updateSolidity() {
     solidity = solidity.getNext();
   }
 
@@ -20,9 +20,12 @@ public class AccountStore extends LedgerYiStoreWithRevoking<AccountCapsule> {
   private static Map<String, byte[]> assertsAddress = new HashMap<>(); // key = name , value = address
 
 
+  private static final long CACHE_SIZE = 100_000;
+
   @Autowired
   private AccountStore(@Value("account") String dbName) {
     super(dbName);
+    enableCache(CACHE_SIZE, account -> new AccountCapsule(account.getInstance()));
   }
 
   public static void setAccount(com.typesafe.config.Config config) {
@@ -38,7 +41,7 @@ public class AccountStore extends LedgerYiStoreWithRevoking<AccountCapsule> {
   @Override
   public AccountCapsule get(byte[] key) {
     byte[] value = revokingDB.getUnchecked(key);
-    return ArrayUtils.isEmpty(value) ? null : new AccountCapsule(value);
+    return ArrayUtils.isEmpty(value) ? null : decode(key, value);
   }
 
   @Override
@@ -19,9 +19,12 @@ import java.util.Map;
 @Component
 public class ContractStore extends LedgerYiStoreWithRevoking<ContractCapsule> {
 
+    private static final long CACHE_SIZE = 10_000;
+
     @Autowired
     private ContractStore(@Value("contract") String dbName) {
         super(dbName);
+        enableCache(CACHE_SIZE, contract -> new ContractCapsule(contract.getInstance()));
     }
 
     @Override
@@ -41,7 +44,10 @@ public class ContractStore extends LedgerYiStoreWithRevoking<ContractCapsule> {
         if (ArrayUtils.isEmpty(value)) {
             return null;
         }
-        ContractCapsule contractCapsule = new ContractCapsule(value);
+        ContractCapsule contractCapsule = decode(contractAddress, value);
+        if (contractCapsule == null) {
+            return null;
+        }
         SmartContractOuterClass.SmartContract smartContract = contractCapsule.getInstance();
         if (smartContract == null) {
             return null;
@@ -1,14 +1,12 @@
 package cn.ledgeryi.chainbase.core.store;
 
 import cn.ledgeryi.chainbase.core.capsule.BytesCapsule;
-import cn.ledgeryi.chainbase.core.db.LedgerYiStoreWithRevoking;
-import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
-public class CpuTimeUsedStore extends LedgerYiStoreWithRevoking<BytesCapsule> {
+public class CpuTimeUsedStore extends UsageStore {
 
   @Autowired
   public CpuTimeUsedStore(@Value("cpu-time-used") String dbName) {
@@ -18,19 +16,4 @@ public class CpuTimeUsedStore extends LedgerYiStoreWithRevoking<BytesCapsule> {
   public void put(BytesCapsule bytesCapsule) {
     put(bytesCapsule.getData(), new BytesCapsule(bytesCapsule.getData()));
   }
-
-  @Override
-  public BytesCapsule get(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
-    if (ArrayUtils.isEmpty(value)) {
-      return null;
-    }
-    return new BytesCapsule(value);
-  }
-
-  @Override
-  public boolean has(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
-    return !ArrayUtils.isEmpty(value);
-  }
-}
\ No newline at end of file
+}
@@ -37,6 +37,8 @@ public class DynamicPropertiesStore extends LedgerYiStoreWithRevoking<BytesCapsu
 
   @Autowired
   private DynamicPropertiesStore(@Value("properties") String dbName) {
+    // no capsule cache: a BytesCapsule wraps the stored bytes without parsing them, the cache
+    // lookup and value comparison would cost more than the decode they save
     super(dbName);
 
     try {
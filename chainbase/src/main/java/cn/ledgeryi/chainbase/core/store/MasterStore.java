@@ -18,9 +18,12 @@ import java.util.stream.Collectors;
 @Component
 public class MasterStore extends LedgerYiStoreWithRevoking<MasterCapsule> {
 
+  private static final long CACHE_SIZE = 1_000;
+
   @Autowired
   protected MasterStore(@Value("master") String dbName) {
     super(dbName);
+    enableCache(CACHE_SIZE, master -> new MasterCapsule(master.getInstance()));
   }
 
   /**
@@ -35,6 +38,6 @@ public class MasterStore extends LedgerYiStoreWithRevoking<MasterCapsule> {
   @Override
   public MasterCapsule get(byte[] key) {
     byte[] value = revokingDB.getUnchecked(key);
-    return ArrayUtils.isEmpty(value) ? null : new MasterCapsule(value);
+    return ArrayUtils.isEmpty(value) ? null : decode(key, value);
   }
 }
@@ -2,6 +2,9 @@ package cn.ledgeryi.chainbase.core.store;
 
 import cn.ledgeryi.chainbase.core.capsule.StorageRowCapsule;
 import cn.ledgeryi.chainbase.core.db.LedgerYiStoreWithRevoking;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,15 +14,129 @@ import org.springframework.stereotype.Component;
 @Component
 public class StorageRowStore extends LedgerYiStoreWithRevoking<StorageRowCapsule> {
 
+  private static final int BLOCK_CACHE_SIZE = 200_000;
+  private static final byte[] ABSENT = new byte[0];
+
+  /**
+   * rows read or written by the thread processing a block, valid only while that thread is the
+   * only writer, see {@link #openBlockCache()}.
+   */
+  private volatile BlockCache blockCache;
+
   @Autowired
   private StorageRowStore(@Value("storage-row") String dbName) {
     super(dbName);
   }
 
+  /**
+   * Cache the rows the calling thread reads and writes until {@link #closeBlockCache()}, so the
+   * transactions of a block hitting the same slots read each of them from the chain once.
+   *
+   * <p>The cache is written through and only used by the calling thread, the caller must make
+   * sure nothing else changes the rows meanwhile: no speculative execution is committed and every
+   * reverted session is followed by {@link #invalidateBlockCache()}.
+   */
+  public void openBlockCache() {
+    blockCache = new BlockCache(Thread.currentThread());
+  }
+
+  /**
+   * Forget the cached rows, the chain changed under the cache.
+   */
+  public void invalidateBlockCache() {
+    BlockCache cache = blockCache;
+    if (cache != null) {
+      cache.rows.clear();
+    }
+  }
+
+  public void closeBlockCache() {
+    BlockCache cache = blockCache;
+    blockCache = null;
+    if (cache != null) {
+      log.debug("storage row block cache, hits: {}, misses: {}", cache.hits, cache.misses);
+    }
+  }
+
   @Override
   public StorageRowCapsule get(byte[] key) {
-    StorageRowCapsule row = getUnchecked(key);
+    BlockCache cache = ownCache();
+    if (cache == null) {
+      StorageRowCapsule row = getUnchecked(key);
+      row.setRowKey(key);
+      return row;
+    }
+
+    byte[] value = cache.rows.get(WrappedByteArray.of(key));
+    if (value == null) {
+      cache.misses++;
+      value = revokingDB.getUnchecked(key);
+      cache(cache.rows, WrappedByteArray.copyOf(key), value);
+    } else {
+      cache.hits++;
+      value = value == ABSENT ? null : value;
+    }
+    // the VM owns the returned row, never hand out the cached array
+    StorageRowCapsule row = new StorageRowCapsule(value == null ? null : value.clone());
     row.setRowKey(key);
     return row;
   }
+
+  @Override
+  public void put(byte[] key, StorageRowCapsule item) {
+    super.put(key, item);
+    BlockCache cache = ownCache();
+    if (cache != null && key != null && item != null) {
+      cache(cache.rows, WrappedByteArray.copyOf(key), item.getData());
+    }
+  }
+
+  @Override
+  public void delete(byte[] key) {
+    super.delete(key);
+    BlockCache cache = ownCache();
+    if (cache != null) {
+      cache(cache.rows, WrappedByteArray.copyOf(key), null);
+    }
+  }
+
+  /**
+   * write the rows of a committed contract storage at once, a null row deletes its key.
+   */
+  @Override
+  public void batch(Map<WrappedByteArray, StorageRowCapsule> rows) {
+    super.batch(rows);
+    BlockCache cache = ownCache();
+    if (cache != null) {
+      rows.forEach((key, row) -> cache(cache.rows, key, row == null ? null : row.getData()));
+    }
+  }
+
+  private BlockCache ownCache() {
+    BlockCache cache = blockCache;
+    return cache == null || cache.owner != Thread.currentThread() ? null : cache;
+  }
+
+  private static void cache(Map<WrappedByteArray, byte[]> rows, WrappedByteArray key,
+      byte[] value) {
+    byte[] cached = value == null ? ABSENT : value.clone();
+    if (rows.size() < BLOCK_CACHE_SIZE) {
+      rows.put(key, cached);
+    } else {
+      // full, keep what is cached up to date but do not grow
+      rows.replace(key, cached);
+    }
+  }
+
+  private static final class BlockCache {
+
+    private final Thread owner;
+    private final Map<WrappedByteArray, byte[]> rows = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    private BlockCache(Thread owner) {
+      this.owner = owner;
+    }
+  }
 }
@@ -0,0 +1,115 @@
+package cn.ledgeryi.chainbase.core.store;
+
+import cn.ledgeryi.chainbase.core.capsule.BytesCapsule;
+import cn.ledgeryi.chainbase.core.db.LedgerYiStoreWithRevoking;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import cn.ledgeryi.common.runtime.vm.DataWord;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * Per contract usage counter, the total is stored as a {@link DataWord}.
+ *
+ * <p>While a block is processed the amounts added by the processing thread are summed in memory
+ * and only written when the block is done, see {@link #openBatch()}, so its transactions do not
+ * each read and rewrite the counter of the contract they call.
+ */
+public abstract class UsageStore extends LedgerYiStoreWithRevoking<BytesCapsule> {
+
+  private volatile Batch batch;
+
+  protected UsageStore(String dbName) {
+    super(dbName);
+  }
+
+  /**
+   * Sum the amounts the calling thread adds until {@link #flushBatch()} or
+   * {@link #discardBatch()}, other threads keep writing through.
+   */
+  public void openBatch() {
+    batch = new Batch(Thread.currentThread());
+  }
+
+  /**
+   * Add the summed amounts to the stored totals, one update per contract.
+   */
+  public void flushBatch() {
+    Batch pending = batch;
+    if (pending == null) {
+      return;
+    }
+    pending.usage.forEach((address, used) -> {
+      update(address.getBytes(), used.sum());
+      pending.usage.remove(address);
+    });
+    batch = null;
+  }
+
+  /**
+   * Drop the summed amounts, the state they were added to is reverted.
+   */
+  public void discardBatch() {
+    batch = null;
+  }
+
+  /**
+   * add {@code value} to the usage of {@code address}.
+   */
+  public void add(byte[] address, long value) {
+    Batch pending = batch;
+    if (pending != null && pending.owner == Thread.currentThread()) {
+      pending.usage.computeIfAbsent(WrappedByteArray.copyOf(address), k -> new LongAdder())
+          .add(value);
+      return;
+    }
+    update(address, value);
+  }
+
+  /**
+   * @return the usage of {@code address}, including what the block being processed added so far.
+   */
+  public long getUsage(byte[] address) {
+    byte[] value = revokingDB.getUnchecked(address);
+    long used = ArrayUtils.isEmpty(value) ? 0 : new DataWord(value).longValue();
+    Batch pending = batch;
+    if (pending != null) {
+      LongAdder added = pending.usage.get(WrappedByteArray.of(address));
+      used += added == null ? 0 : added.sum();
+    }
+    return used;
+  }
+
+  @Override
+  public BytesCapsule get(byte[] key) {
+    if (!has(key)) {
+      return null;
+    }
+    return new BytesCapsule(new DataWord(getUsage(key)).getData());
+  }
+
+  @Override
+  public boolean has(byte[] key) {
+    if (!ArrayUtils.isEmpty(revokingDB.getUnchecked(key))) {
+      return true;
+    }
+    Batch pending = batch;
+    return pending != null && pending.usage.containsKey(WrappedByteArray.of(key));
+  }
+
+  private void update(byte[] address, long value) {
+    update(address, old -> new DataWord(
+        value + (ArrayUtils.isEmpty(old) ? 0 : new DataWord(old).longValue())).getData());
+  }
+
+  private static final class Batch {
+
+    private final Thread owner;
+    private final Map<WrappedByteArray, LongAdder> usage = new ConcurrentHashMap<>();
+
+    private Batch(Thread owner) {
+      this.owner = owner;
+    }
+  }
+}
@@ -51,6 +51,8 @@ public class Constant {
   public static final String NODE_TCP_NETTY_WORK_THREAD_NUM = "node.tcpNettyWorkThreadNum";
   public static final String NODE_UDP_NETTY_WORK_THREAD_NUM = "node.udpNettyWorkThreadNum";
   public static final String NODE_VALIDATE_SIGN_THREAD_NUM = "node.validateSignThreadNum";
+  public static final String NODE_PARALLEL_EXEC_THREAD_NUM = "node.parallelExecThreadNum";
+  public static final String NODE_TX_FANOUT = "node.txFanout";
   public static final String NODE_WALLET_EXTENSION_API = "node.walletExtensionApi";
   public static final String NODE_CONNECT_FACTOR = "node.connectFactor";
   public static final String NODE_ACTIVE_CONNECT_FACTOR = "node.activeConnectFactor";
@@ -85,4 +87,6 @@ public class Constant {
   public static final String STORAGE_BACKUP_PROP_PATH = "storage.backup.propPath";
 
   public static final String ACTUATOR_WHITELIST = "contract.whitelist";
+
+  public static final String VM_FAST_DISPATCH = "vm.fastDispatch";
 }
@@ -273,11 +273,7 @@ public class DataWord implements Comparable<DataWord> {
   }
 
   public void bnot() {
-    if (this.isZero()) {
-      this.data = ByteUtil.copyToArray(MAX_VALUE);
-      return;
-    }
-    this.data = ByteUtil.copyToArray(MAX_VALUE.subtract(this.value()));
+    this.data = UInt256.toBytes(UInt256.not(UInt256.of(data)));
   }
 
   // By   : Holger
@@ -298,15 +294,20 @@ public class DataWord implements Comparable<DataWord> {
     this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
   }
 
-  // mul can be done in more efficient way
-  // with shift left shift right trick
-  // without BigInteger quick hack
+  // arithmetic below works on UInt256 digits, with long fast paths where both operands fit in
+  // 64 bits, and gives the same bytes as the BigInteger code it replaced
+
   public void mul(DataWord word) {
-    BigInteger result = value().multiply(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] a = UInt256.of(data);
+    int[] b = UInt256.of(word.data);
+    if (UInt256.isLong(a) && UInt256.isLong(b)
+        && (UInt256.low(a) >>> 32) == 0 && (UInt256.low(b) >>> 32) == 0) {
+      this.data = UInt256.toBytes(UInt256.low(a) * UInt256.low(b));
+      return;
+    }
+    this.data = UInt256.toBytes(UInt256.mul(a, b));
   }
 
-  // improve with no BigInteger
   public void div(DataWord word) {
 
     if (word.isZero()) {
@@ -314,11 +315,15 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().divide(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] a = UInt256.of(data);
+    int[] b = UInt256.of(word.data);
+    if (UInt256.isLong(a) && UInt256.isLong(b)) {
+      this.data = UInt256.toBytes(Long.divideUnsigned(UInt256.low(a), UInt256.low(b)));
+      return;
+    }
+    this.data = UInt256.toBytes(UInt256.divide(a, b));
   }
 
-  // improve with no BigInteger
   public void sDiv(DataWord word) {
 
     if (word.isZero()) {
@@ -326,23 +331,21 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = sValue().divide(word.sValue());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] a = UInt256.of(data);
+    int[] b = UInt256.of(word.data);
+    boolean negative = UInt256.isNegative(a) != UInt256.isNegative(b);
+    int[] result = UInt256.divide(abs(a), abs(b));
+    this.data = UInt256.toBytes(negative ? UInt256.negate(result) : result);
   }
 
-  // improve with no BigInteger
   public void sub(DataWord word) {
-    BigInteger result = value().subtract(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = UInt256.toBytes(UInt256.sub(UInt256.of(data), UInt256.of(word.data)));
   }
 
-  // improve with no BigInteger
   public void exp(DataWord word) {
-    BigInteger result = value().modPow(word.value(), _2_256);
-    this.data = ByteUtil.copyToArray(result);
+    this.data = UInt256.toBytes(UInt256.pow(UInt256.of(data), UInt256.of(word.data)));
   }
 
-  // improve with no BigInteger
   public void mod(DataWord word) {
 
     if (word.isZero()) {
@@ -350,8 +353,13 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().mod(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] a = UInt256.of(data);
+    int[] b = UInt256.of(word.data);
+    if (UInt256.isLong(a) && UInt256.isLong(b)) {
+      this.data = UInt256.toBytes(Long.remainderUnsigned(UInt256.low(a), UInt256.low(b)));
+      return;
+    }
+    this.data = UInt256.toBytes(UInt256.mod(a, b));
   }
 
   public void sMod(DataWord word) {
@@ -361,10 +369,9 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = sValue().abs().mod(word.sValue().abs());
-    result = (sValue().signum() == -1) ? result.negate() : result;
-
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] a = UInt256.of(data);
+    int[] result = UInt256.mod(abs(a), abs(UInt256.of(word.data)));
+    this.data = UInt256.toBytes(UInt256.isNegative(a) ? UInt256.negate(result) : result);
   }
 
   public void addmod(DataWord word1, DataWord word2) {
@@ -373,8 +380,8 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().add(word1.value()).mod(word2.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] sum = UInt256.addFull(UInt256.of(data), UInt256.of(word1.data));
+    this.data = UInt256.toBytes(UInt256.divide(sum, UInt256.of(word2.data), null));
   }
 
   public void mulmod(DataWord word1, DataWord word2) {
@@ -384,8 +391,12 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().multiply(word1.value()).mod(word2.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    int[] product = UInt256.mulFull(UInt256.of(data), UInt256.of(word1.data));
+    this.data = UInt256.toBytes(UInt256.divide(product, UInt256.of(word2.data), null));
+  }
+
+  private static int[] abs(int[] a) {
+    return UInt256.isNegative(a) ? UInt256.negate(a) : a;
   }
 
   @JsonValue
@@ -449,11 +460,22 @@ public class DataWord implements Comparable<DataWord> {
     return (int) Math.signum(result);
   }
 
+  /**
+   * Compares both words as two's complement signed values, like {@code sValue().compareTo}.
+   */
+  public int sCompareTo(DataWord o) {
+    boolean negative = isNegative();
+    if (negative != o.isNegative()) {
+      return negative ? -1 : 1;
+    }
+    return compareTo(o);
+  }
+
   public void signExtend(byte k) {
     if (0 > k || k > 31) {
       throw new IndexOutOfBoundsException();
     }
-    byte mask = this.sValue().testBit((k * 8) + 7) ? (byte) 0xff : 0;
+    byte mask = (data[31 - k] & 0x80) != 0 ? (byte) 0xff : 0;
     for (int i = 31; i > k; i--) {
       this.data[31 - i] = mask;
     }
@@ -485,12 +507,11 @@ public class DataWord implements Comparable<DataWord> {
    * @return this << arg
    */
   public DataWord shiftLeft(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    if (arg.bytesOccupied() > 1) {
       return DataWord.ZERO();
     }
 
-    BigInteger result = value().shiftLeft(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    return new DataWord(UInt256.toBytes(UInt256.shiftLeft(UInt256.of(data), arg.intValue())));
   }
 
   /**
@@ -499,12 +520,11 @@ public class DataWord implements Comparable<DataWord> {
    * @return this >> arg
    */
   public DataWord shiftRight(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    if (arg.bytesOccupied() > 1) {
       return DataWord.ZERO();
     }
 
-    BigInteger result = value().shiftRight(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    return new DataWord(UInt256.toBytes(UInt256.shiftRight(UInt256.of(data), arg.intValue(), 0)));
   }
 
   /**
@@ -513,7 +533,7 @@ public class DataWord implements Comparable<DataWord> {
    * @return this >> arg
    */
   public DataWord shiftRightSigned(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    if (arg.bytesOccupied() > 1) {
       if (this.isNegative()) {
         DataWord result = ONE();
         result.negate();
@@ -523,7 +543,8 @@ public class DataWord implements Comparable<DataWord> {
       }
     }
 
-    BigInteger result = sValue().shiftRight(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    int[] value = UInt256.of(data);
+    int fill = UInt256.isNegative(value) ? -1 : 0;
+    return new DataWord(UInt256.toBytes(UInt256.shiftRight(value, arg.intValue(), fill)));
   }
 }
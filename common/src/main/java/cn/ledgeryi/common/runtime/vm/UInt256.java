@@ -0,0 +1,331 @@
+package cn.ledgeryi.common.runtime.vm;
+
+/**
+ * Unsigned 256-bit arithmetic for {@link DataWord}, on eight 32-bit digits, least significant
+ * first. 32-bit digits keep every digit product inside a long, java 8 has no 64x64 bit high
+ * multiply. Results wrap modulo 2^256 like the BigInteger code they replace.
+ */
+final class UInt256 {
+
+  static final int DIGITS = 8;
+  private static final long MASK = 0xffffffffL;
+
+  private UInt256() {
+  }
+
+  /**
+   * @param data big-endian, at most 32 bytes, shorter arrays read as right aligned.
+   */
+  static int[] of(byte[] data) {
+    int[] x = new int[DIGITS];
+    for (int i = 0, end = data.length - 1; i < data.length; i++) {
+      x[i >>> 2] |= (data[end - i] & 0xff) << ((i & 3) << 3);
+    }
+    return x;
+  }
+
+  static byte[] toBytes(int[] x) {
+    byte[] data = new byte[DataWord.WORD_SIZE];
+    for (int i = 0; i < DataWord.WORD_SIZE; i++) {
+      data[DataWord.WORD_SIZE - 1 - i] = (byte) (x[i >>> 2] >>> ((i & 3) << 3));
+    }
+    return data;
+  }
+
+  static byte[] toBytes(long value) {
+    byte[] data = new byte[DataWord.WORD_SIZE];
+    for (int i = 0; i < 8; i++) {
+      data[DataWord.WORD_SIZE - 1 - i] = (byte) (value >>> (i << 3));
+    }
+    return data;
+  }
+
+  /**
+   * @return whether the value fits in the low 64 bits.
+   */
+  static boolean isLong(int[] x) {
+    for (int i = 2; i < DIGITS; i++) {
+      if (x[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the low 64 bits, unsigned.
+   */
+  static long low(int[] x) {
+    return ((long) x[1] << 32) | (x[0] & MASK);
+  }
+
+  static boolean isZero(int[] x) {
+    for (int digit : x) {
+      if (digit != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isNegative(int[] x) {
+    return x[DIGITS - 1] < 0;
+  }
+
+  static int[] add(int[] a, int[] b) {
+    int[] r = new int[DIGITS];
+    long carry = 0;
+    for (int i = 0; i < DIGITS; i++) {
+      long t = (a[i] & MASK) + (b[i] & MASK) + carry;
+      r[i] = (int) t;
+      carry = t >>> 32;
+    }
+    return r;
+  }
+
+  static int[] sub(int[] a, int[] b) {
+    int[] r = new int[DIGITS];
+    long borrow = 0;
+    for (int i = 0; i < DIGITS; i++) {
+      long t = (a[i] & MASK) - (b[i] & MASK) - borrow;
+      r[i] = (int) t;
+      borrow = t < 0 ? 1 : 0;
+    }
+    return r;
+  }
+
+  static int[] not(int[] a) {
+    int[] r = new int[DIGITS];
+    for (int i = 0; i < DIGITS; i++) {
+      r[i] = ~a[i];
+    }
+    return r;
+  }
+
+  static int[] negate(int[] a) {
+    int[] r = not(a);
+    for (int i = 0; i < DIGITS && ++r[i] == 0; i++) {
+      // carry into the next digit
+    }
+    return r;
+  }
+
+  /**
+   * @return the low 256 bits of {@code a * b}.
+   */
+  static int[] mul(int[] a, int[] b) {
+    int[] r = new int[DIGITS];
+    for (int i = 0; i < DIGITS; i++) {
+      long ai = a[i] & MASK;
+      if (ai == 0) {
+        continue;
+      }
+      long carry = 0;
+      for (int j = 0; i + j < DIGITS; j++) {
+        long t = ai * (b[j] & MASK) + (r[i + j] & MASK) + carry;
+        r[i + j] = (int) t;
+        carry = t >>> 32;
+      }
+    }
+    return r;
+  }
+
+  /**
+   * @return the full 512-bit product, 16 digits.
+   */
+  static int[] mulFull(int[] a, int[] b) {
+    int[] r = new int[2 * DIGITS];
+    for (int i = 0; i < DIGITS; i++) {
+      long ai = a[i] & MASK;
+      if (ai == 0) {
+        continue;
+      }
+      long carry = 0;
+      for (int j = 0; j < DIGITS; j++) {
+        long t = ai * (b[j] & MASK) + (r[i + j] & MASK) + carry;
+        r[i + j] = (int) t;
+        carry = t >>> 32;
+      }
+      r[i + DIGITS] = (int) carry;
+    }
+    return r;
+  }
+
+  /**
+   * @return the 257-bit sum, 9 digits.
+   */
+  static int[] addFull(int[] a, int[] b) {
+    int[] r = new int[DIGITS + 1];
+    long carry = 0;
+    for (int i = 0; i < DIGITS; i++) {
+      long t = (a[i] & MASK) + (b[i] & MASK) + carry;
+      r[i] = (int) t;
+      carry = t >>> 32;
+    }
+    r[DIGITS] = (int) carry;
+    return r;
+  }
+
+  /**
+   * {@code base ^ exponent mod 2^256}, by squaring.
+   */
+  static int[] pow(int[] base, int[] exponent) {
+    int[] result = new int[DIGITS];
+    result[0] = 1;
+    int bits = bitLength(exponent);
+    for (int i = bits - 1; i >= 0; i--) {
+      result = mul(result, result);
+      if ((exponent[i >>> 5] & (1 << (i & 31))) != 0) {
+        result = mul(result, base);
+      }
+    }
+    return result;
+  }
+
+  static int[] shiftLeft(int[] a, int n) {
+    int[] r = new int[DIGITS];
+    int digits = n >>> 5;
+    int bits = n & 31;
+    for (int i = DIGITS - 1; i >= digits; i--) {
+      long pair = ((long) a[i - digits] << 32)
+          | (i - digits - 1 >= 0 ? a[i - digits - 1] & MASK : 0);
+      r[i] = (int) (pair >>> (32 - bits));
+    }
+    return r;
+  }
+
+  /**
+   * @param fill 0 for a logical shift, -1 to shift in ones.
+   */
+  static int[] shiftRight(int[] a, int n, int fill) {
+    int[] r = new int[DIGITS];
+    int digits = n >>> 5;
+    int bits = n & 31;
+    for (int i = 0; i < DIGITS; i++) {
+      int lo = i + digits < DIGITS ? a[i + digits] : fill;
+      int hi = i + digits + 1 < DIGITS ? a[i + digits + 1] : fill;
+      long pair = ((long) hi << 32) | (lo & MASK);
+      r[i] = (int) (pair >>> bits);
+    }
+    return r;
+  }
+
+  static int bitLength(int[] a) {
+    for (int i = a.length - 1; i >= 0; i--) {
+      if (a[i] != 0) {
+        return (i << 5) + 32 - Integer.numberOfLeadingZeros(a[i]);
+      }
+    }
+    return 0;
+  }
+
+  static int[] divide(int[] a, int[] b) {
+    int[] quotient = new int[DIGITS];
+    divide(a, b, quotient);
+    return quotient;
+  }
+
+  static int[] mod(int[] a, int[] b) {
+    return divide(a, b, null);
+  }
+
+  /**
+   * Knuth's algorithm D, as in Hacker's Delight divmnu.
+   *
+   * @param u the dividend, any number of digits.
+   * @param v the divisor, not zero.
+   * @param q receives the low 256 bits of the quotient when not null.
+   * @return the remainder, 8 digits.
+   */
+  static int[] divide(int[] u, int[] v, int[] q) {
+    int m = digits(u);
+    int n = digits(v);
+    int[] r = new int[DIGITS];
+    if (m < n) {
+      System.arraycopy(u, 0, r, 0, m);
+      return r;
+    }
+
+    int[] quotient = new int[m - n + 1];
+    if (n == 1) {
+      long divisor = v[0] & MASK;
+      long rem = 0;
+      for (int j = m - 1; j >= 0; j--) {
+        long current = (rem << 32) | (u[j] & MASK);
+        quotient[j] = (int) Long.divideUnsigned(current, divisor);
+        rem = Long.remainderUnsigned(current, divisor);
+      }
+      r[0] = (int) rem;
+    } else {
+      int s = Integer.numberOfLeadingZeros(v[n - 1]);
+      int[] vn = new int[n];
+      for (int i = n - 1; i > 0; i--) {
+        vn[i] = (int) ((((long) v[i] << 32) | (v[i - 1] & MASK)) >>> (32 - s));
+      }
+      vn[0] = v[0] << s;
+      int[] un = new int[m + 1];
+      un[m] = (int) ((u[m - 1] & MASK) >>> (32 - s));
+      for (int i = m - 1; i > 0; i--) {
+        un[i] = (int) ((((long) u[i] << 32) | (u[i - 1] & MASK)) >>> (32 - s));
+      }
+      un[0] = u[0] << s;
+
+      long top = vn[n - 1] & MASK;
+      long next = vn[n - 2] & MASK;
+      for (int j = m - n; j >= 0; j--) {
+        long numerator = ((un[j + n] & MASK) << 32) | (un[j + n - 1] & MASK);
+        long qhat = Long.divideUnsigned(numerator, top);
+        long rhat = Long.remainderUnsigned(numerator, top);
+        while (qhat > MASK
+            || Long.compareUnsigned(qhat * next, (rhat << 32) | (un[j + n - 2] & MASK)) > 0) {
+          qhat--;
+          rhat += top;
+          if (rhat > MASK) {
+            break;
+          }
+        }
+
+        long borrow = 0;
+        long t;
+        for (int i = 0; i < n; i++) {
+          long p = qhat * (vn[i] & MASK);
+          t = (un[i + j] & MASK) - borrow - (p & MASK);
+          un[i + j] = (int) t;
+          borrow = (p >>> 32) - (t >> 32);
+        }
+        t = (un[j + n] & MASK) - borrow;
+        un[j + n] = (int) t;
+
+        quotient[j] = (int) qhat;
+        if (t < 0) {
+          // qhat was one too large, add the divisor back
+          quotient[j]--;
+          long carry = 0;
+          for (int i = 0; i < n; i++) {
+            t = (un[i + j] & MASK) + (vn[i] & MASK) + carry;
+            un[i + j] = (int) t;
+            carry = t >>> 32;
+          }
+          un[j + n] += (int) carry;
+        }
+      }
+
+      for (int i = 0; i < n; i++) {
+        r[i] = (int) ((((long) un[i + 1] << 32) | (un[i] & MASK)) >>> s);
+      }
+    }
+
+    if (q != null) {
+      System.arraycopy(quotient, 0, q, 0, Math.min(quotient.length, DIGITS));
+    }
+    return r;
+  }
+
+  private static int digits(int[] a) {
+    int n = a.length;
+    while (n > 0 && a[n - 1] == 0) {
+      n--;
+    }
+    return n;
+  }
+}
@@ -0,0 +1,52 @@
+package cn.ledgeryi.common.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of hashes computed per algorithm since start, and the rate since the last sample.
+ */
+public enum HashStats {
+  SHA256,
+  SM3,
+  KECCAK256,
+  KECCAK512;
+
+  private final LongAdder count = new LongAdder();
+  private long sampledCount;
+  private long sampledNanos = System.nanoTime();
+
+  public void increment() {
+    count.increment();
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return hashes per second since the previous call, or since start for the first one.
+   */
+  public synchronized double sample() {
+    long now = System.nanoTime();
+    long total = count.sum();
+    double rate = now == sampledNanos ? 0 : (total - sampledCount) * 1e9 / (now - sampledNanos);
+    sampledCount = total;
+    sampledNanos = now;
+    return rate;
+  }
+
+  /**
+   * samples every algorithm, e.g. {@code SHA256:1200.0/s, SM3:0.0/s, ...}.
+   */
+  public static String sampleAll() {
+    StringBuilder builder = new StringBuilder();
+    for (HashStats stats : values()) {
+      if (builder.length() > 0) {
+        builder.append(", ");
+      }
+      builder.append(stats.name()).append(':').append(String.format("%.1f", stats.sample()))
+          .append("/s");
+    }
+    return builder.toString();
+  }
+}
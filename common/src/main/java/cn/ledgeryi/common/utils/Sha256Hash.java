@@ -4,11 +4,14 @@ import com.google.common.io.ByteStreams;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
 import org.spongycastle.crypto.digests.SM3Digest;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.MessageDigest;
@@ -162,18 +165,19 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
    * @return the hash (in big-endian order)
    */
   public static byte[] hash(boolean isSha256, byte[] input, int offset, int length) {
-    if (isSha256) {
-      MessageDigest digest = newDigest();
-      digest.update(input, offset, length);
-      return digest.digest();
-    } else {
-      SM3Digest digest = newSM3Digest();
-      digest.update(input, offset, length);
-      byte[] eHash = new byte[digest.getDigestSize()];
-      digest.doFinal(eHash, 0);
-      return eHash;
-    }
+    Hasher hasher = Hasher.get(isSha256);
+    hasher.update(input, offset, length);
+    return hasher.digest();
+  }
 
+  /**
+   * Calculates the hash of the serialized form of {@code message}, which is written straight into
+   * the digest instead of being copied out with {@code toByteArray()} first.
+   */
+  public static Sha256Hash of(boolean isSha256, MessageLite message) {
+    Hasher hasher = Hasher.get(isSha256);
+    hasher.update(message);
+    return wrap(hasher.digest());
   }
 
   /**
@@ -195,21 +199,11 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
    * @return the double-hash (in big-endian order)
    */
   public static byte[] hashTwice(boolean isSha256, byte[] input, int offset, int length) {
-    if (isSha256) {
-      MessageDigest digest = newDigest();
-      digest.update(input, offset, length);
-      return digest.digest(digest.digest());
-    } else {
-      SM3Digest digest = newSM3Digest();
-      digest.update(input, offset, length);
-      byte[] eHash = new byte[digest.getDigestSize()];
-      digest.doFinal(eHash, 0);
-      digest.reset();
-      digest.update(eHash,0,eHash.length);
-      digest.doFinal(eHash,0);
-      return eHash;
-    }
-
+    Hasher hasher = Hasher.get(isSha256);
+    hasher.update(input, offset, length);
+    byte[] first = hasher.digest();
+    hasher.update(first, 0, first.length);
+    return hasher.digest();
   }
 
   /**
@@ -218,19 +212,16 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
    */
   public static byte[] hashTwice(boolean isSha256, byte[] input1, int offset1, int length1,
                                  byte[] input2, int offset2, int length2) {
-    if (isSha256) {
-      MessageDigest digest = newDigest();
-      digest.update(input1, offset1, length1);
-      digest.update(input2, offset2, length2);
-      return digest.digest(digest.digest());
-    } else {
-      SM3Digest digest = newSM3Digest();
-      digest.update(input1, offset1, length1);
-      digest.update(input2, offset2, length2);
-      byte[] eHash = new byte[digest.getDigestSize()];
-      digest.doFinal(eHash,0);
-      return eHash;
+    Hasher hasher = Hasher.get(isSha256);
+    hasher.update(input1, offset1, length1);
+    hasher.update(input2, offset2, length2);
+    byte[] first = hasher.digest();
+    if (!isSha256) {
+      // SM3 has always hashed the two ranges once here, block ids depend on it
+      return first;
     }
+    hasher.update(first, 0, first.length);
+    return hasher.digest();
   }
 
   private byte[] generateBlockId(long blockNum, Sha256Hash blockHash) {
@@ -313,4 +304,99 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
     }
     return 0;
   }
+
+  /**
+   * A thread's reusable digest engine, fed part by part. {@link #digest()} resets it for the next
+   * hash. Obtain it with {@link #get(boolean)} and do not hand it to another thread, nor start a
+   * second hash on the same thread before the first is digested.
+   */
+  public static final class Hasher extends OutputStream {
+
+    private static final ThreadLocal<Hasher> SHA256 =
+        ThreadLocal.withInitial(() -> new Hasher(newDigest(), null));
+    private static final ThreadLocal<Hasher> SM3 =
+        ThreadLocal.withInitial(() -> new Hasher(null, newSM3Digest()));
+    private static final int BUFFER_SIZE = 4096;
+
+    private final MessageDigest sha256;
+    private final SM3Digest sm3;
+    private CodedOutputStream coded;
+
+    private Hasher(MessageDigest sha256, SM3Digest sm3) {
+      this.sha256 = sha256;
+      this.sm3 = sm3;
+    }
+
+    public static Hasher get(boolean isSha256) {
+      Hasher hasher = isSha256 ? SHA256.get() : SM3.get();
+      hasher.reset();
+      return hasher;
+    }
+
+    public Hasher update(byte[] input, int offset, int length) {
+      if (sha256 != null) {
+        sha256.update(input, offset, length);
+      } else {
+        sm3.update(input, offset, length);
+      }
+      return this;
+    }
+
+    public Hasher update(ByteString input) {
+      try {
+        input.writeTo(this);
+      } catch (IOException e) {
+        throw new IllegalStateException(e); // the digest never throws
+      }
+      return this;
+    }
+
+    /**
+     * feed the serialized form of {@code message}, through a buffer kept with this hasher.
+     */
+    public Hasher update(MessageLite message) {
+      if (coded == null) {
+        coded = CodedOutputStream.newInstance(this, BUFFER_SIZE);
+      }
+      try {
+        message.writeTo(coded);
+        coded.flush();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return this;
+    }
+
+    public byte[] digest() {
+      (sha256 != null ? HashStats.SHA256 : HashStats.SM3).increment();
+      if (sha256 != null) {
+        return sha256.digest();
+      }
+      byte[] hash = new byte[sm3.getDigestSize()];
+      sm3.doFinal(hash, 0);
+      return hash;
+    }
+
+    private void reset() {
+      if (sha256 != null) {
+        sha256.reset();
+      } else {
+        sm3.reset();
+      }
+    }
+
+    @Override
+    public void write(int b) {
+      if (sha256 != null) {
+        sha256.update((byte) b);
+      } else {
+        sm3.update((byte) b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      update(b, off, len);
+    }
+  }
 }
@@ -0,0 +1,152 @@
+package cn.ledgeryi.common.runtime.vm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import cn.ledgeryi.common.utils.ByteUtil;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+/**
+ * Differential test of DataWord arithmetic against the BigInteger formulas it used to run.
+ */
+public class DataWordTest {
+
+  private static final BigInteger MAX = DataWord.MAX_VALUE;
+  private static final int ROUNDS = 20000;
+
+  private final Random random = new Random(7);
+
+  @Test
+  public void unsignedArithmetic() {
+    for (int i = 0; i < ROUNDS; i++) {
+      DataWord a = word();
+      DataWord b = word();
+      BigInteger x = a.value();
+      BigInteger y = b.value();
+
+      check("add", bytes(x.add(y).and(MAX)), apply(a, w -> w.add(b)));
+      check("sub", bytes(x.subtract(y).and(MAX)), apply(a, w -> w.sub(b)));
+      check("mul", bytes(x.multiply(y).and(MAX)), apply(a, w -> w.mul(b)));
+      check("div", y.signum() == 0 ? new byte[32] : bytes(x.divide(y)), apply(a, w -> w.div(b)));
+      check("mod", y.signum() == 0 ? new byte[32] : bytes(x.mod(y)), apply(a, w -> w.mod(b)));
+      check("exp", bytes(x.modPow(y, DataWord._2_256)), apply(a, w -> w.exp(b)));
+      check("bnot", bytes(MAX.subtract(x)), apply(a, DataWord::bnot));
+      assertEquals(Integer.signum(x.compareTo(y)), a.compareTo(b));
+    }
+  }
+
+  @Test
+  public void signedArithmetic() {
+    for (int i = 0; i < ROUNDS; i++) {
+      DataWord a = word();
+      DataWord b = word();
+      BigInteger x = a.sValue();
+      BigInteger y = b.sValue();
+
+      byte[] sDiv = y.signum() == 0 ? new byte[32] : bytes(x.divide(y).and(MAX));
+      check("sDiv", sDiv, apply(a, w -> w.sDiv(b)));
+
+      byte[] sMod = new byte[32];
+      if (y.signum() != 0) {
+        BigInteger r = x.abs().mod(y.abs());
+        sMod = bytes((x.signum() == -1 ? r.negate() : r).and(MAX));
+      }
+      check("sMod", sMod, apply(a, w -> w.sMod(b)));
+      assertEquals(Integer.signum(x.compareTo(y)), a.sCompareTo(b));
+    }
+  }
+
+  @Test
+  public void modularArithmetic() {
+    for (int i = 0; i < ROUNDS; i++) {
+      DataWord a = word();
+      DataWord b = word();
+      DataWord m = word();
+      BigInteger x = a.value();
+      BigInteger y = b.value();
+      BigInteger z = m.value();
+
+      byte[] addmod = z.signum() == 0 ? new byte[32] : bytes(x.add(y).mod(z));
+      check("addmod", addmod, apply(a, w -> w.addmod(b, m)));
+      byte[] mulmod = z.signum() == 0 ? new byte[32] : bytes(x.multiply(y).mod(z));
+      check("mulmod", mulmod, apply(a, w -> w.mulmod(b, m)));
+    }
+  }
+
+  @Test
+  public void shifts() {
+    for (int i = 0; i < ROUNDS; i++) {
+      DataWord a = word();
+      int n = random.nextInt(300);
+      DataWord shift = new DataWord(n);
+      BigInteger x = a.value();
+
+      byte[] left = n >= 256 ? new byte[32] : bytes(x.shiftLeft(n).and(MAX));
+      assertArrayEquals("shl " + a + " " + n, left, a.shiftLeft(shift).getData());
+      byte[] right = n >= 256 ? new byte[32] : bytes(x.shiftRight(n));
+      assertArrayEquals("shr " + a + " " + n, right, a.shiftRight(shift).getData());
+      byte[] signed = bytes(a.sValue().shiftRight(Math.min(n, 256)).and(MAX));
+      assertArrayEquals("sar " + a + " " + n, signed, a.shiftRightSigned(shift).getData());
+    }
+  }
+
+  @Test
+  public void signExtend() {
+    for (int i = 0; i < ROUNDS; i++) {
+      DataWord a = word();
+      byte k = (byte) random.nextInt(32);
+      int bits = (k + 1) * 8;
+      BigInteger low = a.value().and(BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE));
+      BigInteger expected = low.testBit(bits - 1)
+          ? low.or(MAX.shiftLeft(bits).and(MAX)) : low;
+      check("signExtend", bytes(expected), apply(a, w -> w.signExtend(k)));
+    }
+  }
+
+  private DataWord word() {
+    byte[] data = new byte[32];
+    switch (random.nextInt(8)) {
+      case 0:
+        break;
+      case 1:
+        data[31] = (byte) random.nextInt(3);
+        break;
+      case 2:
+        Arrays.fill(data, (byte) 0xff);
+        break;
+      case 3:
+        // around the sign bit
+        data[0] = (byte) (random.nextBoolean() ? 0x80 : 0x7f);
+        if (random.nextBoolean()) {
+          Arrays.fill(data, 1, 32, data[0] == (byte) 0x80 ? 0 : (byte) 0xff);
+        }
+        break;
+      default:
+        // random width, so both the long fast paths and every divisor length are exercised
+        int width = 1 + random.nextInt(32);
+        byte[] value = new byte[width];
+        random.nextBytes(value);
+        System.arraycopy(value, 0, data, 32 - width, width);
+        break;
+    }
+    return new DataWord(data);
+  }
+
+  private static byte[] bytes(BigInteger value) {
+    return ByteUtil.copyToArray(value);
+  }
+
+  private static DataWord apply(DataWord word, Consumer<DataWord> op) {
+    DataWord copy = word.clone();
+    op.accept(copy);
+    return copy;
+  }
+
+  private static void check(String op, byte[] expected, DataWord actual) {
+    assertArrayEquals(op, expected, actual.getData());
+  }
+}
@@ -0,0 +1,311 @@
+package cn.ledgeryi.contract.vm;
+
+import static cn.ledgeryi.contract.vm.OpCode.ADD;
+import static cn.ledgeryi.contract.vm.OpCode.DUP1;
+import static cn.ledgeryi.contract.vm.OpCode.DUP16;
+import static cn.ledgeryi.contract.vm.OpCode.JUMP;
+import static cn.ledgeryi.contract.vm.OpCode.JUMPI;
+import static cn.ledgeryi.contract.vm.OpCode.MSTORE;
+import static cn.ledgeryi.contract.vm.OpCode.PUSH1;
+import static cn.ledgeryi.contract.vm.OpCode.PUSH32;
+import static cn.ledgeryi.contract.vm.OpCode.SWAP1;
+import static cn.ledgeryi.contract.vm.OpCode.SWAP16;
+
+import cn.ledgeryi.common.runtime.vm.DataWord;
+import cn.ledgeryi.contract.vm.program.Program;
+import cn.ledgeryi.contract.vm.program.Stack;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatch loop used by {@link VM#play} when {@code VmConfig.fastDispatch} is on and the program
+ * is not traced.
+ *
+ * <p>The common stack, arithmetic, comparison, jump and memory word opcodes are run by small
+ * handlers here, every other opcode goes through {@link VM#step}, which stays the reference
+ * implementation. {@code VM.step} is too large for the JIT to compile, the handlers are not.
+ * Three sequences solc emits all the time are fused into one handler: PUSH followed by JUMP,
+ * JUMPI or MSTORE consumes the immediate without pushing it, and DUP followed by ADD adds the
+ * duplicate without pushing it. Each opcode of a fused pair is still accounted, checked and
+ * failed exactly like the reference would.
+ */
+@Slf4j(topic = "VM")
+final class FastInterpreter {
+
+  private static final boolean[] HANDLED = new boolean[256];
+
+  static {
+    OpCode[] handled = {OpCode.STOP, ADD, OpCode.MUL, OpCode.SUB, OpCode.DIV, OpCode.MOD,
+        OpCode.LT, OpCode.GT, OpCode.SLT, OpCode.SGT, OpCode.EQ, OpCode.ISZERO, OpCode.AND,
+        OpCode.OR, OpCode.XOR, OpCode.NOT, OpCode.POP, OpCode.MLOAD, MSTORE, JUMP, JUMPI,
+        OpCode.JUMPDEST};
+    for (OpCode op : handled) {
+      HANDLED[op.val() & 0xff] = true;
+    }
+    for (int code = PUSH1.val() & 0xff; code <= (PUSH32.val() & 0xff); code++) {
+      HANDLED[code] = true;
+    }
+    for (int code = DUP1.val() & 0xff; code <= (DUP16.val() & 0xff); code++) {
+      HANDLED[code] = true;
+    }
+    for (int code = SWAP1.val() & 0xff; code <= (SWAP16.val() & 0xff); code++) {
+      HANDLED[code] = true;
+    }
+  }
+
+  private final VM vm;
+
+  FastInterpreter(VM vm) {
+    this.vm = vm;
+  }
+
+  void play(Program program) {
+    Stack stack = program.getStack();
+    while (!program.isStopped()) {
+      int code = program.getCurrentOp() & 0xff;
+      if (!HANDLED[code]) {
+        vm.step(program);
+        continue;
+      }
+      try {
+        execute(program, stack, OpCode.code((byte) code));
+      } catch (RuntimeException e) {
+        log.info("VM halted: [{}]", e.getMessage());
+        program.stop();
+        throw e;
+      }
+    }
+  }
+
+  private void execute(Program program, Stack stack, OpCode op) {
+    begin(program, op);
+    switch (op) {
+      case STOP:
+        program.setHReturn(VM.EMPTY_BYTE_ARRAY);
+        program.stop();
+        break;
+      case ADD: {
+        DataWord word1 = program.stackPop();
+        word1.add(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case MUL: {
+        DataWord word1 = program.stackPop();
+        word1.mul(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case SUB: {
+        DataWord word1 = program.stackPop();
+        word1.sub(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case DIV: {
+        DataWord word1 = program.stackPop();
+        word1.div(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case MOD: {
+        DataWord word1 = program.stackPop();
+        word1.mod(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case LT: {
+        DataWord word1 = program.stackPop();
+        pushBoolean(program, word1, word1.compareTo(program.stackPop()) < 0);
+        break;
+      }
+      case GT: {
+        DataWord word1 = program.stackPop();
+        pushBoolean(program, word1, word1.compareTo(program.stackPop()) > 0);
+        break;
+      }
+      case SLT: {
+        DataWord word1 = program.stackPop();
+        pushBoolean(program, word1, word1.sCompareTo(program.stackPop()) < 0);
+        break;
+      }
+      case SGT: {
+        DataWord word1 = program.stackPop();
+        pushBoolean(program, word1, word1.sCompareTo(program.stackPop()) > 0);
+        break;
+      }
+      case EQ: {
+        DataWord word1 = program.stackPop();
+        pushBoolean(program, word1, word1.xor(program.stackPop()).isZero());
+        break;
+      }
+      case ISZERO: {
+        DataWord word1 = program.stackPop();
+        pushBoolean(program, word1, word1.isZero());
+        break;
+      }
+      case AND: {
+        DataWord word1 = program.stackPop();
+        word1.and(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case OR: {
+        DataWord word1 = program.stackPop();
+        word1.or(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case XOR: {
+        DataWord word1 = program.stackPop();
+        word1.xor(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case NOT: {
+        DataWord word1 = program.stackPop();
+        word1.bnot();
+        program.stackPush(word1);
+        program.step();
+        break;
+      }
+      case POP:
+        program.stackPop();
+        program.step();
+        break;
+      case MLOAD: {
+        VM.checkMemorySize(op, VM.memNeeded(stack.peek(), new DataWord(32)));
+        DataWord addr = program.stackPop();
+        program.stackPush(program.memoryLoad(addr));
+        program.step();
+        break;
+      }
+      case MSTORE: {
+        VM.checkMemorySize(op, VM.memNeeded(stack.peek(), new DataWord(32)));
+        DataWord addr = program.stackPop();
+        program.memorySave(addr, program.stackPop());
+        program.step();
+        break;
+      }
+      case JUMP:
+        program.setPC(program.verifyJumpDest(program.stackPop()));
+        break;
+      case JUMPI: {
+        DataWord pos = program.stackPop();
+        jumpIf(program, pos, program.stackPop());
+        break;
+      }
+      case JUMPDEST:
+        program.step();
+        break;
+      default:
+        executeStackOp(program, stack, op);
+        return;
+    }
+    program.setPreviouslyExecutedOp(op.val());
+  }
+
+  private void executeStackOp(Program program, Stack stack, OpCode op) {
+    int code = op.val() & 0xff;
+    if (code >= (SWAP1.val() & 0xff) && code <= (SWAP16.val() & 0xff)) {
+      stack.swap(stack.size() - 1, stack.size() - (code - (SWAP1.val() & 0xff) + 2));
+      program.step();
+      program.setPreviouslyExecutedOp(op.val());
+      return;
+    }
+
+    int pc = program.getPC();
+    if (code >= (DUP1.val() & 0xff) && code <= (DUP16.val() & 0xff)) {
+      int n = code - (DUP1.val() & 0xff) + 1;
+      if (pc + 1 < program.getCodeLength() && program.getOp(pc + 1) == ADD.val()) {
+        // DUPn ADD: the duplicate is the first ADD operand, add the second into it directly
+        DataWord word1 = stack.get(stack.size() - n).clone();
+        program.step();
+        program.setPreviouslyExecutedOp(op.val());
+        begin(program, ADD);
+        verifyStackAfterPush(program, ADD);
+        word1.add(program.stackPop());
+        program.stackPush(word1);
+        program.step();
+        program.setPreviouslyExecutedOp(ADD.val());
+      } else {
+        stack.dup(n);
+        program.step();
+        program.setPreviouslyExecutedOp(op.val());
+      }
+      return;
+    }
+
+    // PUSHn
+    int n = code - (PUSH1.val() & 0xff) + 1;
+    int next = pc + n + 1;
+    OpCode fused = next < program.getCodeLength() ? OpCode.code(program.getOp(next)) : null;
+    if (fused != JUMP && fused != JUMPI && fused != MSTORE) {
+      program.stackPushImmediate(n);
+      program.setPreviouslyExecutedOp(op.val());
+      return;
+    }
+
+    // PUSHn JUMP / JUMPI / MSTORE: the immediate is the operand on top, use it without pushing
+    program.verifyStackOverflow(0, 1);
+    DataWord immediate = program.sweepWord(n);
+    program.setPreviouslyExecutedOp(op.val());
+    begin(program, fused);
+    verifyStackAfterPush(program, fused);
+    switch (fused) {
+      case JUMP:
+        program.setPC(program.verifyJumpDest(immediate));
+        break;
+      case JUMPI:
+        jumpIf(program, immediate, program.stackPop());
+        break;
+      default:
+        VM.checkMemorySize(fused, VM.memNeeded(immediate, new DataWord(32)));
+        program.memorySave(immediate, program.stackPop());
+        program.step();
+        break;
+    }
+    program.setPreviouslyExecutedOp(fused.val());
+  }
+
+  /**
+   * the bookkeeping {@link VM#step} does before running an opcode.
+   */
+  private static void begin(Program program, OpCode op) {
+    program.setLastOp(op.val());
+    program.verifyStackOverflow(op.require(), op.ret());
+    program.spendCpuTime(op.getTier().asInt());
+  }
+
+  /**
+   * the overflow check of the second opcode of a fused pair, counting the word the first one
+   * would have pushed.
+   */
+  private static void verifyStackAfterPush(Program program, OpCode op) {
+    program.verifyStackOverflow(op.require() - 1, op.ret());
+  }
+
+  private static void jumpIf(Program program, DataWord pos, DataWord cond) {
+    if (!cond.isZero()) {
+      program.setPC(program.verifyJumpDest(pos));
+    } else {
+      program.step();
+    }
+  }
+
+  private static void pushBoolean(Program program, DataWord word, boolean value) {
+    word.and(DataWord.ZERO);
+    if (value) {
+      word.getData()[31] = 1;
+    }
+    program.stackPush(word);
+    program.step();
+  }
+}
@@ -248,6 +248,7 @@ public class LedgerYiVmActuator implements VmActuator {
       this.vm = new VM();
       rootInternalTransaction = new InternalTransaction(tx, txType);
       this.program = new Program(code, programInvoke, rootInternalTransaction, vmConfig, isCheckTransaction());
+      this.program.setCodeHash(deployedContract.getCodeHash());
       byte[] txId = TransactionUtil.getTransactionId(tx).getBytes();
       this.program.setRootTransactionId(txId);
     }
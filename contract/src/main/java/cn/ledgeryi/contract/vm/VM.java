@@ -23,7 +23,6 @@ public class VM {
 
   public static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
-  private static final BigInteger _32_ = BigInteger.valueOf(32);
   private static final BigInteger MEM_LIMIT = BigInteger.valueOf(3L * 1024 * 1024); // memory size limit 3MB
 
   public VM() {
@@ -42,11 +41,11 @@ public class VM {
    * @param size  number of bytes needed
    * @return offset + size, unless size is 0. In that case memNeeded is also 0.
    */
-  private static BigInteger memNeeded(DataWord offset, DataWord size) {
+  static BigInteger memNeeded(DataWord offset, DataWord size) {
     return size.isZero() ? BigInteger.ZERO : offset.value().add(size.value());
   }
 
-  private void checkMemorySize(OpCode op, BigInteger newMemSize) {
+  static void checkMemorySize(OpCode op, BigInteger newMemSize) {
     if (newMemSize.compareTo(MEM_LIMIT) > 0) {
       throw Program.Exception.memoryOverflow(op);
     }
@@ -62,14 +61,12 @@ public class VM {
       if (op == null) {
         throw Program.Exception.invalidOpCode(program.getCurrentOp());
       }
-      log.debug("current exec code: " + op.toString());
+      log.debug("current exec code: {}", op);
 
       program.setLastOp(op.val());
       program.verifyStackOverflow(op.require(), op.ret());
 
-      long currentCpuTimeUsed = op.getTier().asInt();
-      long CpuTimeUsedTotal = program.getCpuTimeUsed();
-      program.setCpuTimeUsed(CpuTimeUsedTotal + currentCpuTimeUsed);
+      program.spendCpuTime(op.getTier().asInt());
       Stack stack = program.getStack();
 
       switch (op) {
@@ -147,10 +144,10 @@ public class VM {
         break;
         case SIGNEXTEND: {
           DataWord word1 = program.stackPop();
-          BigInteger k = word1.value();
-          if (k.compareTo(_32_) < 0) {
+          long k = word1.longValueSafe();
+          if (k < 32) {
             DataWord word2 = program.stackPop();
-            word2.signExtend(k.byteValue());
+            word2.signExtend((byte) k);
             program.stackPush(word2);
           }
           program.step();
@@ -166,7 +163,7 @@ public class VM {
         case LT: {
           DataWord word1 = program.stackPop();
           DataWord word2 = program.stackPop();
-          if (word1.value().compareTo(word2.value()) < 0) {
+          if (word1.compareTo(word2) < 0) {
             word1.and(DataWord.ZERO);
             word1.getData()[31] = 1;
           } else {
@@ -179,7 +176,7 @@ public class VM {
         case SLT: {
           DataWord word1 = program.stackPop();
           DataWord word2 = program.stackPop();
-          if (word1.sValue().compareTo(word2.sValue()) < 0) {
+          if (word1.sCompareTo(word2) < 0) {
             word1.and(DataWord.ZERO);
             word1.getData()[31] = 1;
           } else {
@@ -192,7 +189,7 @@ public class VM {
         case SGT: {
           DataWord word1 = program.stackPop();
           DataWord word2 = program.stackPop();
-          if (word1.sValue().compareTo(word2.sValue()) > 0) {
+          if (word1.sCompareTo(word2) > 0) {
             word1.and(DataWord.ZERO);
             word1.getData()[31] = 1;
           } else {
@@ -205,7 +202,7 @@ public class VM {
         case GT: {
           DataWord word1 = program.stackPop();
           DataWord word2 = program.stackPop();
-          if (word1.value().compareTo(word2.value()) > 0) {
+          if (word1.compareTo(word2) > 0) {
             word1.and(DataWord.ZERO);
             word1.getData()[31] = 1;
           } else {
@@ -271,7 +268,7 @@ public class VM {
           DataWord word1 = program.stackPop();
           DataWord word2 = program.stackPop();
           final DataWord result;
-          if (word1.value().compareTo(_32_) < 0) {
+          if (word1.longValueSafe() < 32) {
             byte tmp = word2.getData()[word1.intValue()];
             word2.and(DataWord.ZERO);
             word2.getData()[31] = tmp;
@@ -451,13 +448,7 @@ public class VM {
           int memOffset = program.stackPop().intValueSafe();
           int codeOffset = program.stackPop().intValueSafe();
           int lengthData = program.stackPop().intValueSafe();
-          int sizeToBeCopied = (long) codeOffset + lengthData > fullCode.length ?
-                  (fullCode.length < codeOffset ? 0 : fullCode.length - codeOffset) : lengthData;
-          byte[] codeCopy = new byte[lengthData];
-          if (codeOffset < fullCode.length) {
-            System.arraycopy(fullCode, codeOffset, codeCopy, 0, sizeToBeCopied);
-          }
-          program.memorySave(memOffset, codeCopy);
+          program.memoryCopy(memOffset, fullCode, codeOffset, lengthData);
           program.step();
           break;
         }
@@ -537,8 +528,7 @@ public class VM {
         case DUP15:
         case DUP16: {
           int n = op.val() - OpCode.DUP1.val() + 1;
-          DataWord word_1 = stack.get(stack.size() - n);
-          program.stackPush(word_1.clone());
+          stack.dup(n);
           program.step();
           break;
         }
@@ -607,8 +597,7 @@ public class VM {
           checkMemorySize(op, memNeeded(stack.peek(), new DataWord(1)));
           DataWord addr = program.stackPop();
           DataWord value = program.stackPop();
-          byte[] byteVal = {value.getData()[31]};
-          program.memorySave(addr.intValueSafe(), byteVal);
+          program.memorySave(addr.intValueSafe(), value.getData()[31]);
           program.step();
         }
         break;
@@ -702,10 +691,8 @@ public class VM {
         case PUSH30:
         case PUSH31:
         case PUSH32: {
-          program.step();
           int nPush = op.val() - PUSH1.val() + 1;
-          byte[] data = program.sweep(nPush);
-          program.stackPush(data);
+          program.stackPushImmediate(nPush);
           break;
         }
         case JUMPDEST: {
@@ -816,8 +803,12 @@ public class VM {
         return;
       }
 
-      while (!program.isStopped()) {
-        this.step(program);
+      if (config.fastDispatch() && !config.vmTrace() && !program.isTracing()) {
+        new FastInterpreter(this).play(program);
+      } else {
+        while (!program.isStopped()) {
+          this.step(program);
+        }
       }
 
     } catch (RuntimeException e) {
@@ -11,6 +11,9 @@ public class VmConfig {
     @Setter
     private static boolean ALLOW_TVM_CONSTANTINOPLE = true;
 
+    @Setter
+    private static boolean fastDispatch = false;
+
     public static final int MAX_FEE_LIMIT = 1_000_000_000;
 
     private VmConfig() {
@@ -32,6 +35,10 @@ public class VmConfig {
         return vmTraceCompressed;
     }
 
+    public static boolean fastDispatch() {
+        return fastDispatch;
+    }
+
     public static boolean allowTvmConstantinople() {
         return ALLOW_TVM_CONSTANTINOPLE;
     }
@@ -22,19 +22,23 @@ import cn.ledgeryi.common.utils.ByteUtil;
 import cn.ledgeryi.contract.vm.program.listener.ProgramListener;
 import cn.ledgeryi.contract.vm.program.listener.ProgramListenerAware;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 import static java.lang.Math.ceil;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.String.format;
 
+/**
+ * Program memory, one contiguous array grown in whole chunks. Bytes past {@link #size()} are
+ * always zero, the array only grows, so extending never has to clear anything.
+ */
 public class Memory implements ProgramListenerAware {
 
   private static final int CHUNK_SIZE = 1024;
   private static final int WORD_SIZE = 32;
 
-  private List<byte[]> chunks = new LinkedList<>();
+  private byte[] data = ByteUtil.EMPTY_BYTE_ARRAY;
   private int softSize;
   private ProgramListener programListener;
 
@@ -49,27 +53,7 @@ public class Memory implements ProgramListenerAware {
     }
 
     extend(address, size);
-    byte[] data = new byte[size];
-
-    int chunkIndex = address / CHUNK_SIZE;
-    int chunkOffset = address % CHUNK_SIZE;
-
-    int toGrab = data.length;
-    int start = 0;
-
-    while (toGrab > 0) {
-      int copied = grabMax(chunkIndex, chunkOffset, toGrab, data, start);
-
-      // read next chunk from the start
-      ++chunkIndex;
-      chunkOffset = 0;
-
-      // mark remind
-      toGrab -= copied;
-      start += copied;
-    }
-
-    return data;
+    return Arrays.copyOfRange(data, address, address + size);
   }
 
   public void write(int address, byte[] data, int dataSize, boolean limited) {
@@ -82,9 +66,6 @@ public class Memory implements ProgramListenerAware {
       extend(address, dataSize);
     }
 
-    int chunkIndex = address / CHUNK_SIZE;
-    int chunkOffset = address % CHUNK_SIZE;
-
     int toCapture = 0;
     if (limited) {
       toCapture = (address + dataSize > softSize) ? softSize - address : dataSize;
@@ -92,21 +73,35 @@ public class Memory implements ProgramListenerAware {
       toCapture = dataSize;
     }
 
-    int start = 0;
-    while (toCapture > 0) {
-      int captured = captureMax(chunkIndex, chunkOffset, toCapture, data, start);
+    if (toCapture > 0) {
+      System.arraycopy(data, 0, this.data, address, toCapture);
+    }
 
-      // capture next chunk
-      ++chunkIndex;
-      chunkOffset = 0;
+    if (programListener != null) {
+      programListener.onMemoryWrite(address, data, dataSize);
+    }
+  }
+
+  /**
+   * Writes {@code length} bytes of {@code src} from {@code srcOffset} at {@code address}, bytes
+   * past the end of {@code src} read as zero. Saves copying the source into a temporary array
+   * first, as CODECOPY would.
+   */
+  public void copyFrom(int address, byte[] src, int srcOffset, int length) {
+    if (length <= 0) {
+      return;
+    }
 
-      // mark remind
-      toCapture -= captured;
-      start += captured;
+    extend(address, length);
+    int available = srcOffset < src.length ? min(length, src.length - srcOffset) : 0;
+    if (available > 0) {
+      System.arraycopy(src, srcOffset, data, address, available);
     }
+    Arrays.fill(data, address + available, address + length, (byte) 0);
 
     if (programListener != null) {
-      programListener.onMemoryWrite(address, data, dataSize);
+      programListener.onMemoryWrite(address,
+          Arrays.copyOfRange(data, address, address + length), length);
     }
   }
 
@@ -121,12 +116,16 @@ public class Memory implements ProgramListenerAware {
     }
 
     final int newSize = Math.addExact(address, size);
-    int toAllocate = newSize - internalSize();
-    if (toAllocate > 0) {
-      addChunks((int) ceil((double) toAllocate / CHUNK_SIZE));
+    if (newSize > data.length) {
+      int chunks = (int) ceil((double) newSize / CHUNK_SIZE);
+      // double the array so a memory growing word by word is copied log(n) times, the VM bounds
+      // the memory size before it gets here
+      int capacity = (int) max((long) chunks * CHUNK_SIZE,
+          min((long) data.length * 2, Integer.MAX_VALUE));
+      data = Arrays.copyOf(data, capacity);
     }
 
-    toAllocate = newSize - softSize;
+    int toAllocate = newSize - softSize;
     if (toAllocate > 0) {
       toAllocate = (int) ceil((double) toAllocate / WORD_SIZE) * WORD_SIZE;
       softSize = Math.addExact(softSize, toAllocate);
@@ -138,18 +137,32 @@ public class Memory implements ProgramListenerAware {
   }
 
   public DataWord readWord(int address) {
-    return new DataWord(read(address, 32));
+    extend(address, WORD_SIZE);
+    return new DataWord(Arrays.copyOfRange(data, address, address + WORD_SIZE));
   }
 
-  // just access expecting all data valid
-  public byte readByte(int address) {
+  /**
+   * MSTORE, {@code word} is copied into memory as is.
+   */
+  public void writeWord(int address, DataWord word) {
+    write(address, word.getData(), WORD_SIZE, false);
+  }
 
-    int chunkIndex = address / CHUNK_SIZE;
-    int chunkOffset = address % CHUNK_SIZE;
+  /**
+   * MSTORE8.
+   */
+  public void writeByte(int address, byte value) {
+    extend(address, 1);
+    data[address] = value;
 
-    byte[] chunk = chunks.get(chunkIndex);
+    if (programListener != null) {
+      programListener.onMemoryWrite(address, new byte[]{value}, 1);
+    }
+  }
 
-    return chunk[chunkOffset];
+  // just access expecting all data valid
+  public byte readByte(int address) {
+    return data[address];
   }
 
   @Override
@@ -190,35 +203,6 @@ public class Memory implements ProgramListenerAware {
   }
 
   public int internalSize() {
-    return chunks.size() * CHUNK_SIZE;
-  }
-
-  public List<byte[]> getChunks() {
-    return new LinkedList<>(chunks);
-  }
-
-  private int captureMax(int chunkIndex, int chunkOffset, int size, byte[] src, int srcPos) {
-
-    byte[] chunk = chunks.get(chunkIndex);
-    int toCapture = min(size, chunk.length - chunkOffset);
-
-    System.arraycopy(src, srcPos, chunk, chunkOffset, toCapture);
-    return toCapture;
-  }
-
-  private int grabMax(int chunkIndex, int chunkOffset, int size, byte[] dest, int destPos) {
-
-    byte[] chunk = chunks.get(chunkIndex);
-    int toGrab = min(size, chunk.length - chunkOffset);
-
-    System.arraycopy(chunk, chunkOffset, dest, destPos, toGrab);
-
-    return toGrab;
-  }
-
-  private void addChunks(int num) {
-    for (int i = 0; i < num; ++i) {
-      chunks.add(new byte[CHUNK_SIZE]);
-    }
+    return data.length;
   }
 }
@@ -85,6 +85,7 @@ public class Program {
     private ContractState contractState;
     private ProgramTraceListener traceListener;
     private ProgramPrecompile programPrecompile;
+    private byte[] codeHash;
     private InternalTransaction internalTransaction;
     private ProgramResult result = new ProgramResult();
     private CompositeProgramListener programListener = new CompositeProgramListener();
@@ -92,7 +93,7 @@ public class Program {
     private ProgramStorageChangeListener storageDiffListener = new ProgramStorageChangeListener();
 
     private static final int MAX_DEPTH = 64;
-    private static final int MAX_STACK_SIZE = 1024;
+    private static final int MAX_STACK_SIZE = Stack.MAX_SIZE;
     private static final String VALIDATE_FOR_SMART_CONTRACT_FAILURE = "validateForSmartContract failure:%s";
 
     public Program(byte[] ops, ProgramInvoke programInvoke, InternalTransaction internalTransaction, VmConfig config,
@@ -107,7 +108,8 @@ public class Program {
         this.ops = ArrayUtils.nullToEmpty(ops);
         this.traceListener = new ProgramTraceListener(config.vmTrace());
         this.memory = setupProgramListener(new Memory());
-        this.stack = setupProgramListener(new Stack());
+        // only the trace listener reacts to stack events, leave the stack without one otherwise
+        this.stack = config.vmTrace() ? setupProgramListener(new Stack()) : new Stack();
         this.contractState = setupProgramListener(new ContractState(programInvoke));
         this.trace = new ProgramTrace(config, programInvoke);
         this.nonce = internalTransaction.getNonce();
@@ -253,11 +255,19 @@ public class Program {
 
     public ProgramPrecompile getProgramPrecompile() {
         if (programPrecompile == null) {
-            programPrecompile = ProgramPrecompile.compile(ops);
+            programPrecompile = ProgramPrecompile.of(codeHash, ops);
         }
         return programPrecompile;
     }
 
+    /**
+     * the sha3 of the code as stored with its contract, finds the cached analysis of the code
+     * without hashing it.
+     */
+    public void setCodeHash(byte[] codeHash) {
+        this.codeHash = codeHash;
+    }
+
     public int getCallDeep() {
         return invoke.getCallDeep();
     }
@@ -292,6 +302,10 @@ public class Program {
         return (ArrayUtils.getLength(ops) <= pc) ? 0 : ops[pc];
     }
 
+    public int getCodeLength() {
+        return ArrayUtils.getLength(ops);
+    }
+
     public byte getCurrentOp() {
         return ArrayUtils.isEmpty(ops) ? 0 : ops[pc];
     }
@@ -386,6 +400,33 @@ public class Program {
         return data;
     }
 
+    /**
+     * PUSHn at the current pc: copies the immediate straight from the code into the pushed word,
+     * zero filled past the end of the code like {@link #sweep}, and moves past it
+     */
+    public void stackPushImmediate(int n) {
+        stackPush(sweepWord(n));
+    }
+
+    /**
+     * the immediate of the PUSHn at the current pc as a word, without pushing it, moving past it
+     * like {@link #stackPushImmediate}
+     */
+    public DataWord sweepWord(int n) {
+        byte[] word = new byte[DataWord.WORD_SIZE];
+        int available = Math.max(0, Math.min(n, ops.length - pc - 1));
+        System.arraycopy(ops, pc + 1, word, DataWord.WORD_SIZE - n, available);
+        step();
+        if (pc + n > ops.length) {
+            stop();
+        }
+        pc += n;
+        if (pc >= ops.length) {
+            stop();
+        }
+        return new DataWord(word);
+    }
+
     public DataWord stackPop() {
         return stack.pop();
     }
@@ -413,7 +454,19 @@ public class Program {
     }
 
     public void memorySave(DataWord addrB, DataWord value) {
-        memory.write(addrB.intValue(), value.getData(), value.getData().length, false);
+        memory.writeWord(addrB.intValue(), value);
+    }
+
+    public void memorySave(int addr, byte value) {
+        memory.writeByte(addr, value);
+    }
+
+    /**
+     * Copies {@code length} bytes of {@code src} from {@code srcOffset} into memory at {@code addr},
+     * zero filled past the end of {@code src}
+     */
+    public void memoryCopy(int addr, byte[] src, int srcOffset, int length) {
+        memory.copyFrom(addr, src, srcOffset, length);
     }
 
     public void memorySave(int addr, byte[] value) {
@@ -557,6 +610,10 @@ public class Program {
             VM vm = new VM(config);
             Program program = new Program(programCode, programInvoke, internalTx, config, isMasterSignature);
             program.setRootTransactionId(this.rootTransactionId);
+            ContractCapsule codeContract = getContractState().getContract(codeAddress);
+            if (codeContract != null) {
+                program.setCodeHash(codeContract.getCodeHash());
+            }
             vm.play(program);
             callResult = program.getResult();
 
@@ -761,6 +818,10 @@ public class Program {
         this.cpuTimeUsed = cpuTimeUsed;
     }
 
+    public void spendCpuTime(long cpuTime) {
+        this.cpuTimeUsed += cpuTime;
+    }
+
     public long getStorageUsed() {
         return storageUsed;
     }
@@ -777,8 +838,15 @@ public class Program {
         return memory.toString();
     }
 
+    /**
+     * whether {@link #fullTrace} records anything for this program.
+     */
+    public boolean isTracing() {
+        return log.isTraceEnabled() || listener != null;
+    }
+
     public void fullTrace() {
-        if (log.isTraceEnabled() || listener != null) {
+        if (isTracing()) {
 
             StringBuilder stackData = new StringBuilder();
             for (int i = 0; i < stack.size(); ++i) {
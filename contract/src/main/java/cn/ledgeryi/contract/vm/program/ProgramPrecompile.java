@@ -17,13 +17,17 @@
  */
 package cn.ledgeryi.contract.vm.program;
 
+import cn.ledgeryi.common.core.db.ByteArrayWrapper;
 import cn.ledgeryi.common.runtime.vm.DataWord;
+import cn.ledgeryi.common.utils.ByteUtil;
 import cn.ledgeryi.contract.vm.OpCode;
 import cn.ledgeryi.contract.vm.config.VmConfig;
+import cn.ledgeryi.crypto.utils.Hash;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 
 @Slf4j(topic = "VM")
@@ -32,10 +36,42 @@ import java.util.Set;
  */
 public class ProgramPrecompile {
 
-  private Set<Integer> jumpdest = new HashSet<>();
+  // analyses shared by every execution of the same code, keyed by its sha3
+  private static final Cache<ByteArrayWrapper, ProgramPrecompile> CACHE = CacheBuilder.newBuilder()
+      .maximumSize(1024).build();
+
+  private final BitSet jumpdest;
+
+  private ProgramPrecompile(BitSet jumpdest) {
+    this.jumpdest = jumpdest;
+  }
+
+  /**
+   * @return the analysis of {@code ops}, from the cache when the same code ran before.
+   */
+  public static ProgramPrecompile of(byte[] ops) {
+    return ops.length == 0 ? compile(ops) : of(Hash.sha3(ops), ops);
+  }
+
+  /**
+   * @param codeHash the sha3 of {@code ops} as stored with the contract, spares hashing the code,
+   *     empty if unknown.
+   */
+  public static ProgramPrecompile of(byte[] codeHash, byte[] ops) {
+    if (ops.length == 0 || ByteUtil.isNullOrZeroArray(codeHash)) {
+      return of(ops);
+    }
+    ByteArrayWrapper key = new ByteArrayWrapper(codeHash);
+    ProgramPrecompile precompile = CACHE.getIfPresent(key);
+    if (precompile == null) {
+      precompile = compile(ops);
+      CACHE.put(key, precompile);
+    }
+    return precompile;
+  }
 
   public static ProgramPrecompile compile(byte[] ops) {
-    ProgramPrecompile ret = new ProgramPrecompile();
+    BitSet jumpdest = new BitSet(ops.length);
     for (int i = 0; i < ops.length; ++i) {
 
       OpCode op = OpCode.code(ops[i]);
@@ -44,15 +80,14 @@ public class ProgramPrecompile {
       }
 
       if (op.equals(OpCode.JUMPDEST)) {
-        log.debug("JUMPDEST:" + i);
-        ret.jumpdest.add(i);
+        jumpdest.set(i);
       }
 
       if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
         i += op.asInt() - OpCode.PUSH1.asInt() + 1;
       }
     }
-    return ret;
+    return new ProgramPrecompile(jumpdest);
   }
 
   public static byte[] getCode(byte[] ops) {
@@ -89,6 +124,6 @@ public class ProgramPrecompile {
   }
 
   public boolean hasJumpDest(int pc) {
-    return jumpdest.contains(pc);
+    return pc >= 0 && jumpdest.get(pc);
   }
 }
@@ -21,33 +21,75 @@ import cn.ledgeryi.common.runtime.vm.DataWord;
 import cn.ledgeryi.contract.vm.program.listener.ProgramListener;
 import cn.ledgeryi.contract.vm.program.listener.ProgramListenerAware;
 
+import java.util.Arrays;
+import java.util.EmptyStackException;
 import java.util.Objects;
 
-public class Stack extends java.util.Stack<DataWord> implements ProgramListenerAware {
+/**
+ * Operand stack of one program, a fixed array of {@link #MAX_SIZE} slots. It is only touched by
+ * the thread running the program and takes no locks. Index 0 is the bottom, like
+ * {@link java.util.Stack} which it used to extend, and it throws the same exceptions on underflow.
+ */
+public class Stack implements ProgramListenerAware {
 
-  private static final long serialVersionUID = 1;
+  public static final int MAX_SIZE = 1024;
 
-  private transient ProgramListener programListener;
+  private final DataWord[] words = new DataWord[MAX_SIZE];
+  private int size;
+  private ProgramListener programListener;
 
   @Override
   public void setProgramListener(ProgramListener listener) {
     this.programListener = listener;
   }
 
-  @Override
-  public synchronized DataWord pop() {
+  public DataWord pop() {
+    if (size == 0) {
+      throw new EmptyStackException();
+    }
     if (programListener != null) {
       programListener.onStackPop();
     }
-    return super.pop();
+    DataWord word = words[--size];
+    words[size] = null;
+    return word;
   }
 
-  @Override
   public DataWord push(DataWord item) {
     if (programListener != null) {
       programListener.onStackPush(item);
     }
-    return super.push(item);
+    words[size++] = item;
+    return item;
+  }
+
+  public DataWord peek() {
+    if (size == 0) {
+      throw new EmptyStackException();
+    }
+    return words[size - 1];
+  }
+
+  public DataWord get(int index) {
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return words[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * DUPn, pushes a copy of the {@code n}th word from the top.
+   */
+  public void dup(int n) {
+    push(get(size - n).clone());
   }
 
   public void swap(int from, int to) {
@@ -55,36 +97,47 @@ public class Stack extends java.util.Stack<DataWord> implements ProgramListenerA
       if (programListener != null) {
         programListener.onStackSwap(from, to);
       }
-      DataWord tmp = get(from);
-      set(from, set(to, tmp));
+      DataWord tmp = words[from];
+      words[from] = words[to];
+      words[to] = tmp;
     }
   }
 
   private boolean isAccessible(int from) {
-    return from >= 0 && from < size();
+    return from >= 0 && from < size;
   }
 
   @Override
   public boolean equals(Object o) {
-    if (o == null) {
-      return false;
-    }
     if (this == o) {
       return true;
     }
-    if (o.getClass() != this.getClass()) {
+    if (o == null || o.getClass() != this.getClass()) {
       return false;
     }
-    if (!super.equals(o)) {
+    Stack other = (Stack) o;
+    if (size != other.size || !Objects.equals(programListener, other.programListener)) {
       return false;
     }
-    Stack dataWords = (Stack) o;
-    return Objects.equals(programListener, dataWords.programListener);
+    for (int i = 0; i < size; i++) {
+      if (!Objects.equals(words[i], other.words[i])) {
+        return false;
+      }
+    }
+    return true;
   }
 
-
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), programListener);
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + Objects.hashCode(words[i]);
+    }
+    return 31 * result + Objects.hashCode(programListener);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(Arrays.copyOf(words, size));
   }
 }
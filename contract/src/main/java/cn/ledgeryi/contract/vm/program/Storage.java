@@ -1,19 +1,29 @@
 package cn.ledgeryi.contract.vm.program;
 
 import cn.ledgeryi.chainbase.core.capsule.StorageRowCapsule;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
 import cn.ledgeryi.chainbase.core.store.StorageRowStore;
+import cn.ledgeryi.common.core.db.ByteArrayWrapper;
 import cn.ledgeryi.common.runtime.vm.DataWord;
 import cn.ledgeryi.common.utils.ByteUtil;
 import cn.ledgeryi.crypto.utils.Hash;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.Getter;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static java.lang.System.arraycopy;
 
 public class Storage {
     private static final int PREFIX_BYTES = 16;
+    /**
+     * address hashes by hashed bytes, every transaction calling a contract needs the same one.
+     */
+    private static final Cache<ByteArrayWrapper, byte[]> ADDR_HASHES = CacheBuilder.newBuilder()
+            .maximumSize(4096).build();
     @Getter
     private final Map<DataWord, StorageRowCapsule> rowCache = new HashMap<>();
     @Getter
@@ -48,14 +58,24 @@ public class Storage {
 
     // 32 bytes
     private static byte[] addrHash(byte[] address) {
-        return Hash.sha3(address);
+        return sha3(address);
     }
 
     private static byte[] addrHash(byte[] address, byte[] txHash) {
         if (ByteUtil.isNullOrZeroArray(txHash)) {
-            return Hash.sha3(address);
+            return sha3(address);
         }
-        return Hash.sha3(ByteUtil.merge(address, txHash));
+        return sha3(ByteUtil.merge(address, txHash));
+    }
+
+    private static byte[] sha3(byte[] data) {
+        ByteArrayWrapper key = new ByteArrayWrapper(data.clone());
+        byte[] hash = ADDR_HASHES.getIfPresent(key);
+        if (hash == null) {
+            hash = Hash.sha3(data);
+            ADDR_HASHES.put(key, hash);
+        }
+        return hash;
     }
 
     public void generateAddrHash(byte[] txId) {
@@ -86,14 +106,16 @@ public class Storage {
     }
 
     public void commit() {
+        Map<WrappedByteArray, StorageRowCapsule> rows = new LinkedHashMap<>();
         rowCache.forEach((DataWord rowKey, StorageRowCapsule row) -> {
             if (row.isDirty()) {
-                if (new DataWord(row.getValue()).isZero()) {
-                    this.store.delete(row.getRowKey());
-                } else {
-                    this.store.put(row.getRowKey(), row);
-                }
+                // a zero row is deleted
+                rows.put(WrappedByteArray.of(row.getRowKey()),
+                        new DataWord(row.getValue()).isZero() ? null : row);
             }
         });
+        if (!rows.isEmpty()) {
+            this.store.batch(rows);
+        }
     }
 }
@@ -60,6 +60,8 @@ public class RepositoryImpl implements Repository {
   private HashMap<Key, Value> accountCache = new HashMap<>();
   private HashMap<Key, Value> codeCache = new HashMap<>();
   private HashMap<Key, Value> contractCache = new HashMap<>();
+  // contracts read from the parent or the store, kept decoded, never committed
+  private HashMap<Key, ContractCapsule> contractReadCache = new HashMap<>();
   private HashMap<Key, Value> dynamicPropertiesCache = new HashMap<>();
   private HashMap<Key, Storage> storageCache = new HashMap<>();
   private HashMap<Key, Value> cpuTimeConsumeCache = new HashMap<>();
@@ -176,16 +178,20 @@ public class RepositoryImpl implements Repository {
     if (contractCache.containsKey(key)) {
       return contractCache.get(key).getContract();
     }
-    ContractCapsule contractCapsule;
-    if (parent != null) {
-      contractCapsule = parent.getContract(address);
-    } else {
-      contractCapsule = getContractStore().get(address);
-    }
-    if (contractCapsule != null) {
-      contractCache.put(key, Value.create(contractCapsule.getData()));
+    ContractCapsule contractCapsule = contractReadCache.get(key);
+    if (contractCapsule == null) {
+      if (parent != null) {
+        contractCapsule = parent.getContract(address);
+      } else {
+        contractCapsule = getContractStore().get(address);
+      }
+      if (contractCapsule == null) {
+        return null;
+      }
+      contractReadCache.put(key, contractCapsule);
     }
-    return contractCapsule;
+    // callers may modify the capsule, only its immutable protobuf is shared
+    return new ContractCapsule(contractCapsule.getInstance());
   }
 
   @Override
@@ -405,24 +411,22 @@ public class RepositoryImpl implements Repository {
 
   private void commitStorageConsumeCache(Repository deposit) {
     storageConsumeCache.forEach((key, value) -> {
-      if (value.getType().isNormal()) {
-        if (deposit != null) {
-          deposit.putContract(key, value);
-        } else {
-          getStorageUsedStore().put(key.getData(), value.getBytes());
-        }
+      long storageUsed = new DataWord(value.getAny()).longValue();
+      if (deposit != null) {
+        deposit.putStorageUsedValue(key.getData(), storageUsed);
+      } else {
+        getStorageUsedStore().add(key.getData(), storageUsed);
       }
     });
   }
 
   private void cpuTimeConsumeCache(Repository deposit) {
-    storageConsumeCache.forEach((key, value) -> {
-      if (value.getType().isNormal()) {
-        if (deposit != null) {
-          deposit.putContract(key, value);
-        } else {
-          getCpuTimeUsedStore().put(key.getData(), value.getBytes());
-        }
+    cpuTimeConsumeCache.forEach((key, value) -> {
+      long cpuTimeUsed = new DataWord(value.getAny()).longValue();
+      if (deposit != null) {
+        deposit.putCpuTimeUsedValue(key.getData(), cpuTimeUsed);
+      } else {
+        getCpuTimeUsedStore().add(key.getData(), cpuTimeUsed);
       }
     });
   }
@@ -440,31 +444,24 @@ public class RepositoryImpl implements Repository {
     return account;
   }
 
+  /**
+   * the usage is kept as a delta and only added to the stored total on commit, so concurrent
+   * executions calling the same contract do not conflict on it.
+   */
   @Override
   public void putStorageUsedValue(byte[] address, long value) {
-    Key key = new Key(address);
-    BytesCapsule storageUsed = storageUsedStore.get(address);
-    DataWord storageUsedDataWord;
-    if (storageUsed != null){
-      storageUsedDataWord = new DataWord(storageUsed.getData());
-    } else {
-      storageUsedDataWord = DataWord.ZERO;
-    }
-    DataWord cpuTimeConsume = new DataWord(value + storageUsedDataWord.longValue());
-    storageConsumeCache.put(key, Value.create(cpuTimeConsume.getData()));
+    addUsage(storageConsumeCache, address, value);
   }
 
   @Override
   public void putCpuTimeUsedValue(byte[] address, long value) {
+    addUsage(cpuTimeConsumeCache, address, value);
+  }
+
+  private static void addUsage(HashMap<Key, Value> cache, byte[] address, long value) {
     Key key = new Key(address);
-    BytesCapsule cpuTimeUsed = cpuTimeUsedStore.get(address);
-    DataWord cpuTimeUsedDataWord;
-    if (cpuTimeUsed != null){
-      cpuTimeUsedDataWord = new DataWord(cpuTimeUsed.getData());
-    } else {
-      cpuTimeUsedDataWord = DataWord.ZERO;
-    }
-    DataWord cpuTimeConsume = new DataWord(value + cpuTimeUsedDataWord.longValue());
-    cpuTimeConsumeCache.put(key, Value.create(cpuTimeConsume.getData()));
+    Value used = cache.get(key);
+    long total = used == null ? value : value + new DataWord(used.getAny()).longValue();
+    cache.put(key, Value.create(new DataWord(total).getData()));
   }
 }
@@ -0,0 +1,191 @@
+package cn.ledgeryi.contract.vm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import cn.ledgeryi.chainbase.common.runtime.InternalTransaction;
+import cn.ledgeryi.contract.vm.config.VmConfig;
+import cn.ledgeryi.contract.vm.program.Program;
+import cn.ledgeryi.contract.vm.program.Program.BadJumpDestinationException;
+import cn.ledgeryi.contract.vm.program.Program.StackTooLargeException;
+import cn.ledgeryi.contract.vm.program.Stack;
+import cn.ledgeryi.contract.vm.program.invoke.ProgramInvoke;
+import cn.ledgeryi.contract.vm.program.invoke.ProgramInvokeImpl;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+/**
+ * Differential test of the {@link FastInterpreter} dispatch loop against {@link VM#step}: every
+ * program runs through both loops, which must leave the same stack, memory, pc, cpu time and
+ * exception behind.
+ */
+public class FastInterpreterTest {
+
+  private static final int ROUNDS = 5000;
+  private static final long CPU_LIMIT = 50000;
+
+  private static final byte[] PALETTE = {
+      0x00, 0x01, 0x02, 0x03, 0x04, 0x06, 0x08, 0x0a, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16,
+      0x17, 0x18, 0x19, 0x1a, 0x35, 0x50, 0x51, 0x52, 0x56, 0x57, 0x58, 0x59, 0x5b, (byte) 0x80,
+      (byte) 0x81, (byte) 0x82, (byte) 0x8f, (byte) 0x90, (byte) 0x91, (byte) 0x9f, (byte) 0xf3,
+      (byte) 0xfd, (byte) 0xfe};
+
+  private final Random random = new Random(7);
+
+  @After
+  public void restoreDispatch() {
+    VmConfig.setFastDispatch(false);
+  }
+
+  @Test
+  public void fusedSequences() {
+    // PUSH1 JUMP, PUSH1 JUMPI taken and not taken, PUSH1 MSTORE, MLOAD, DUP1 ADD
+    check("600456005b6001600b57005b6000601057602a60205260205160018001600052600051"
+        + "8001810160205260406000f3");
+    // DUP16 ADD and SWAPs around a fused pair
+    check("6001600260036004600560066007600860096010601160126013601460156016"
+        + "8f0190915060005260206000f3");
+  }
+
+  @Test
+  public void stackOverflowAt1024() {
+    // JUMPDEST PUSH1 1 PUSH1 0 JUMP: pushes one word per round through the PUSH JUMP fusion
+    Program program = check("5b6001600056");
+    assertTrue(program.getResult().getException() instanceof StackTooLargeException);
+    assertEquals(Stack.MAX_SIZE, program.getStack().size());
+    // PUSH1 1 JUMPDEST DUP1 PUSH1 2 JUMP: the DUP overflows
+    program = check("60015b80600256");
+    assertTrue(program.getResult().getException() instanceof StackTooLargeException);
+    // PUSH1 1 JUMPDEST DUP1 DUP1 ADD PUSH1 2 JUMP: the DUP ADD fusion overflows
+    program = check("60015b808001600256");
+    assertTrue(program.getResult().getException() instanceof StackTooLargeException);
+  }
+
+  @Test
+  public void badJumpDestination() {
+    // not a JUMPDEST, into the immediate of a PUSH, past the code, more than four bytes
+    String[] codes = {"600356", "6001600457", "605b600156", "60ff56",
+        "7f01" + "00000000000000000000000000000000000000000000000000000000000000" + "56",
+        "6001630000000057"};
+    for (String code : codes) {
+      Program program = check(code);
+      assertTrue(code, program.getResult().getException() instanceof BadJumpDestinationException);
+    }
+  }
+
+  @Test
+  public void pushAtEndOfCode() {
+    // truncated immediates, alone and where a fused JUMP, JUMPI or MSTORE would follow
+    String[] codes = {"60", "6101", "6001600260", "6001617f", "7f0102", "602a600052", "602a6000"};
+    for (String code : codes) {
+      check(code);
+    }
+  }
+
+  @Test
+  public void stackUnderflow() {
+    String[] codes = {"01", "50", "51", "8001", "600157", "600052", "6001820160", "6001600190"};
+    for (String code : codes) {
+      check(code);
+    }
+  }
+
+  @Test
+  public void randomPrograms() {
+    for (int i = 0; i < ROUNDS; i++) {
+      check(Hex.toHexString(randomCode()));
+    }
+  }
+
+  private byte[] randomCode() {
+    int length = 1 + random.nextInt(48);
+    ByteArrayOutputStream code = new ByteArrayOutputStream();
+    while (code.size() < length) {
+      int kind = random.nextInt(4);
+      if (kind == 0) {
+        // a small PUSH1, likely a jump destination or a memory offset in the program
+        code.write(0x60);
+        code.write(random.nextInt(length + 2));
+      } else if (kind == 1 && random.nextInt(4) == 0) {
+        int n = 1 + random.nextInt(32);
+        code.write(0x60 + n - 1);
+        for (int j = 0; j < n; j++) {
+          code.write(random.nextInt(256));
+        }
+      } else {
+        code.write(PALETTE[random.nextInt(PALETTE.length)]);
+      }
+    }
+    return code.toByteArray();
+  }
+
+  /**
+   * runs {@code code} through both loops and compares the programs they leave behind.
+   */
+  private static Program check(String code) {
+    byte[] ops = Hex.decode(code);
+    Program expected = run(ops, false);
+    Program actual = run(ops, true);
+
+    Throwable expectedException = expected.getResult().getException();
+    Throwable actualException = actual.getResult().getException();
+    if (expectedException == null) {
+      assertEquals(code, null, actualException);
+    } else {
+      assertNotNull(code, actualException);
+      assertEquals(code, expectedException.getClass(), actualException.getClass());
+      assertEquals(code, expectedException.getMessage(), actualException.getMessage());
+    }
+    assertEquals(code, expected.getPC(), actual.getPC());
+    assertEquals(code, expected.getCpuTimeUsed(), actual.getCpuTimeUsed());
+    assertEquals(code, expected.getPreviouslyExecutedOp(), actual.getPreviouslyExecutedOp());
+    assertEquals(code, expected.isStopped(), actual.isStopped());
+    assertEquals(code, expected.getResult().isRevert(), actual.getResult().isRevert());
+    assertArrayEquals(code, expected.getResult().getHReturn(), actual.getResult().getHReturn());
+
+    assertEquals(code, expected.getStack().size(), actual.getStack().size());
+    for (int i = 0; i < expected.getStack().size(); i++) {
+      assertEquals(code, expected.getStack().get(i), actual.getStack().get(i));
+    }
+    assertEquals(code, expected.getMemSize(), actual.getMemSize());
+    assertArrayEquals(code, expected.memoryChunk(0, expected.getMemSize()),
+        actual.memoryChunk(0, actual.getMemSize()));
+    return actual;
+  }
+
+  private static Program run(byte[] ops, boolean fastDispatch) {
+    VmConfig.setFastDispatch(fastDispatch);
+    byte[] address = new byte[21];
+    ProgramInvoke invoke = new ProgramInvokeImpl(address, address, address, 0,
+        Hex.decode("0102030405060708"), new byte[32], address, 0, null, 0, 0, 0);
+    InternalTransaction tx = new InternalTransaction(new byte[32], 0, 0, address, address, 0,
+        new byte[0], "call", 0);
+    Program program = new BoundedProgram(ops, invoke, tx);
+    program.setRootTransactionId(new byte[32]);
+    new VM(VmConfig.getInstance()).play(program);
+    return program;
+  }
+
+  /**
+   * stops random programs that loop, at the same opcode in both loops.
+   */
+  private static final class BoundedProgram extends Program {
+
+    BoundedProgram(byte[] ops, ProgramInvoke invoke, InternalTransaction tx) {
+      super(ops, invoke, tx, VmConfig.getInstance());
+    }
+
+    @Override
+    public void spendCpuTime(long cpuTime) {
+      super.spendCpuTime(cpuTime);
+      if (getCpuTimeUsed() > CPU_LIMIT) {
+        throw new IllegalStateException("cpu limit exceeded");
+      }
+    }
+  }
+}
@@ -4,7 +4,9 @@ import cn.ledgeryi.crypto.ecdsa.ECKey;
 import cn.ledgeryi.crypto.ecdsa.ECKey.ECDSASignature;
 import cn.ledgeryi.crypto.sm2.SM2;
 import cn.ledgeryi.crypto.sm2.SM2.SM2Signature;
+import cn.ledgeryi.crypto.utils.RecoveryCurve;
 
+import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.security.SignatureException;
 
@@ -47,4 +49,35 @@ public class SignUtils {
     }
     return SM2.signatureToAddress(messageHash, (SM2Signature) signatureInterface);
   }
+
+  /**
+   * Recover the signer address of a raw signature.
+   *
+   * @param r 32-byte r
+   * @param s 32-byte s
+   * @param v recovery id or header byte
+   */
+  public static byte[] recoverAddress(byte[] messageHash, byte[] r, byte[] s, byte v,
+                                      boolean isEccCryptoEngine) throws SignatureException {
+    return recoverAddress(messageHash, new BigInteger(1, r), new BigInteger(1, s), v,
+        isEccCryptoEngine);
+  }
+
+  /**
+   * Recover the signer address of a raw {@code r || s || v} signature, as carried by transactions
+   * and blocks.
+   */
+  public static byte[] recoverAddress(byte[] messageHash, byte[] signature,
+                                      boolean isEccCryptoEngine) throws SignatureException {
+    return recoverAddress(messageHash, RecoveryCurve.r(signature), RecoveryCurve.s(signature),
+        signature[64], isEccCryptoEngine);
+  }
+
+  private static byte[] recoverAddress(byte[] messageHash, BigInteger r, BigInteger s, byte v,
+                                       boolean isEccCryptoEngine) throws SignatureException {
+    if (isEccCryptoEngine) {
+      return ECKey.recoverAddress(messageHash, r, s, v);
+    }
+    return SM2.recoverAddress(messageHash, r, s, v);
+  }
 }
@@ -6,6 +6,7 @@ import cn.ledgeryi.crypto.SignInterface;
 import cn.ledgeryi.crypto.SignatureInterface;
 import cn.ledgeryi.crypto.jce.*;
 import cn.ledgeryi.crypto.utils.Hash;
+import cn.ledgeryi.crypto.utils.RecoveryCurve;
 import com.google.protobuf.ByteString;
 import lombok.extern.slf4j.Slf4j;
 import org.spongycastle.asn1.ASN1InputStream;
@@ -442,6 +443,33 @@ public class ECKey implements Serializable, SignInterface {
     return Hash.computeAddress(signatureToKeyBytes(messageHash, sig));
   }
 
+  /**
+   * Compute the address of the key that signed the given raw signature, without going through
+   * Base64 or the generic curve arithmetic, see {@link RecoveryCurve}.
+   *
+   * @param messageHash 32-byte hash of message
+   * @param r -
+   * @param s -
+   * @param v recovery id or header byte
+   * @return 20-byte address
+   */
+  public static byte[] recoverAddress(byte[] messageHash, BigInteger r, BigInteger s, byte v)
+      throws SignatureException {
+    RecoveryCurve.checkHash(messageHash);
+    int recId = RecoveryCurve.recId(v);
+    RecoveryCurve curve = RecoveryCurve.SECP256K1;
+    BigInteger n = curve.getN();
+    if (r.signum() <= 0 || r.gcd(n).compareTo(BigInteger.ONE) != 0) {
+      throw new SignatureException("Could not recover public key from signature");
+    }
+    // Q = r^-1 * (sR - eG)
+    ECPoint point = curve.decompress(r, recId);
+    BigInteger rInv = r.modInverse(n);
+    BigInteger eInvrInv = rInv.multiply(n.subtract(new BigInteger(1, messageHash).mod(n))).mod(n);
+    BigInteger srInv = rInv.multiply(s).mod(n);
+    return curve.sumToAddress(eInvrInv, point, srInv);
+  }
+
   /**
    * Compute the key that signed the given signature.
    *
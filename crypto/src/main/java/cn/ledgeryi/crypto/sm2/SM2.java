@@ -7,6 +7,7 @@ import cn.ledgeryi.crypto.ecdsa.ECKey;
 import cn.ledgeryi.crypto.jce.ECKeyFactory;
 import cn.ledgeryi.crypto.jce.LedgerYiCastleProvider;
 import cn.ledgeryi.crypto.utils.Hash;
+import cn.ledgeryi.crypto.utils.RecoveryCurve;
 import lombok.extern.slf4j.Slf4j;
 import org.spongycastle.asn1.ASN1InputStream;
 import org.spongycastle.asn1.ASN1Integer;
@@ -459,6 +460,34 @@ public class SM2 implements Serializable, SignInterface {
         return Hash.computeAddress(signatureToKeyBytes(messageHash, sig));
     }
 
+    /**
+     * Compute the address of the key that signed the given raw signature, without going through
+     * Base64 or the generic curve arithmetic, see {@link RecoveryCurve}.
+     *
+     * @param messageHash 32-byte hash of message
+     * @param r -
+     * @param s -
+     * @param v recovery id or header byte
+     * @return 20-byte address
+     */
+    public static byte[] recoverAddress(byte[] messageHash, BigInteger r, BigInteger s, byte v)
+            throws SignatureException {
+        RecoveryCurve.checkHash(messageHash);
+        int recId = RecoveryCurve.recId(v);
+        RecoveryCurve curve = RecoveryCurve.SM2P256V1;
+        BigInteger n = curve.getN();
+        BigInteger sr = s.add(r);
+        if (sr.gcd(n).compareTo(BigInteger.ONE) != 0) {
+            throw new SignatureException("Could not recover public key from signature");
+        }
+        // r = (x + e) mod n and Q = (s + r)^-1 * (R - sG)
+        BigInteger x = r.subtract(new BigInteger(1, messageHash)).mod(n);
+        ECPoint point = curve.decompress(x, recId);
+        BigInteger srInv = sr.modInverse(n);
+        BigInteger coeff = srInv.multiply(n.subtract(s.mod(n))).mod(n);
+        return curve.sumToAddress(coeff, point, srInv);
+    }
+
     /**
      * Compute the key that signed the given signature.
      *
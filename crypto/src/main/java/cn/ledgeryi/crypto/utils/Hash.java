@@ -1,5 +1,6 @@
 package cn.ledgeryi.crypto.utils;
 
+import cn.ledgeryi.common.utils.HashStats;
 import cn.ledgeryi.crypto.jce.LedgerYiCastleProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.spongycastle.math.ec.ECPoint;
@@ -20,6 +21,8 @@ public class Hash {
   private static final Provider CRYPTO_PROVIDER;
   private static final String HASH_256_ALGORITHM_NAME;
   private static final String HASH_512_ALGORITHM_NAME;
+  private static final ThreadLocal<MessageDigest> KECCAK_256;
+  private static final ThreadLocal<MessageDigest> KECCAK_512;
   /**
    * [0x80] If a string is 0-55 bytes long, the RLP encoding consists of a single byte with value
    * 0x80 plus the length of the string followed by the string. The range of the first byte is thus
@@ -49,33 +52,21 @@ public class Hash {
     CRYPTO_PROVIDER = Security.getProvider("SC");
     HASH_256_ALGORITHM_NAME = "JING-CHAIN-KECCAK-256";
     HASH_512_ALGORITHM_NAME = "JING-CHAIN-KECCAK-512";
+    KECCAK_256 = threadDigest(HASH_256_ALGORITHM_NAME);
+    KECCAK_512 = threadDigest(HASH_512_ALGORITHM_NAME);
     EMPTY_TRIE_HASH = sha3(encodeElement(EMPTY_BYTE_ARRAY));
   }
 
   public static byte[] sha3(byte[] input) {
-    MessageDigest digest;
-    try {
-      digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
-      digest.update(input);
-      return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      log.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
-    }
-
+    return sha3(input, 0, input.length);
   }
 
   public static byte[] sha3(byte[] input1, byte[] input2) {
-    MessageDigest digest;
-    try {
-      digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
-      digest.update(input1, 0, input1.length);
-      digest.update(input2, 0, input2.length);
-      return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      log.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
-    }
+    MessageDigest digest = KECCAK_256.get();
+    digest.update(input1, 0, input1.length);
+    digest.update(input2, 0, input2.length);
+    HashStats.KECCAK256.increment();
+    return digest.digest();
   }
 
   /**
@@ -87,27 +78,30 @@ public class Hash {
    * @return - keccak hash of the chunk
    */
   public static byte[] sha3(byte[] input, int start, int length) {
-    MessageDigest digest;
-    try {
-      digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
-      digest.update(input, start, length);
-      return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      log.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
-    }
+    MessageDigest digest = KECCAK_256.get();
+    digest.update(input, start, length);
+    HashStats.KECCAK256.increment();
+    return digest.digest();
   }
 
   public static byte[] sha512(byte[] input) {
-    MessageDigest digest;
-    try {
-      digest = MessageDigest.getInstance(HASH_512_ALGORITHM_NAME, CRYPTO_PROVIDER);
-      digest.update(input);
-      return digest.digest();
-    } catch (NoSuchAlgorithmException e) {
-      log.error("Can't find such algorithm", e);
-      throw new RuntimeException(e);
-    }
+    MessageDigest digest = KECCAK_512.get();
+    digest.update(input);
+    HashStats.KECCAK512.increment();
+    return digest.digest();
+  }
+
+  // digest() resets the engine, so each thread keeps one per algorithm instead of a provider
+  // lookup per hash
+  private static ThreadLocal<MessageDigest> threadDigest(String algorithm) {
+    return ThreadLocal.withInitial(() -> {
+      try {
+        return MessageDigest.getInstance(algorithm, CRYPTO_PROVIDER);
+      } catch (NoSuchAlgorithmException e) {
+        log.error("Can't find such algorithm", e);
+        throw new RuntimeException(e);
+      }
+    });
   }
 
   /**
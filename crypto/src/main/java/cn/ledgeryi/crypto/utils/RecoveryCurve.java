@@ -0,0 +1,144 @@
+package cn.ledgeryi.crypto.utils;
+
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Arrays;
+import org.spongycastle.asn1.x9.X9ECParameters;
+import org.spongycastle.crypto.ec.CustomNamedCurves;
+import org.spongycastle.math.ec.ECAlgorithms;
+import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.WNafUtil;
+import org.spongycastle.util.BigIntegers;
+
+/**
+ * Curve arithmetic of public key recovery from a raw 65-byte {@code r || s || v} signature.
+ *
+ * <p>Points live on the specialised spongycastle implementation of the curve, with fixed-width
+ * field elements and, for secp256k1, the GLV endomorphism splitting every scalar in two halves.
+ * The window tables of the generator are built once when the curve is loaded and cached on it.
+ * Both supported curves have cofactor 1, so any decoded point is of order n and the
+ * {@code nR == O} check of the generic recovery is skipped. Byte buffers are kept per thread.
+ */
+public final class RecoveryCurve {
+
+  public static final RecoveryCurve SECP256K1 = new RecoveryCurve("secp256k1");
+  public static final RecoveryCurve SM2P256V1 = new RecoveryCurve("sm2p256v1");
+
+  private static final int FIELD_BYTES = 32;
+  private static final int SIGNATURE_LENGTH = 65;
+  private static final int GENERATOR_WINDOW = 6;
+
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  private final ECCurve curve;
+  private final ECPoint g;
+  private final BigInteger n;
+  private final BigInteger p;
+
+  private RecoveryCurve(String name) {
+    X9ECParameters params = CustomNamedCurves.getByName(name);
+    this.curve = params.getCurve();
+    this.g = params.getG();
+    this.n = params.getN();
+    this.p = curve.getField().getCharacteristic();
+    WNafUtil.precompute(g, GENERATOR_WINDOW, true);
+  }
+
+  public BigInteger getN() {
+    return n;
+  }
+
+  /**
+   * @return r of a 65-byte signature.
+   */
+  public static BigInteger r(byte[] signature) throws SignatureException {
+    checkLength(signature);
+    return BigIntegers.fromUnsignedByteArray(signature, 0, FIELD_BYTES);
+  }
+
+  /**
+   * @return s of a 65-byte signature.
+   */
+  public static BigInteger s(byte[] signature) throws SignatureException {
+    checkLength(signature);
+    return BigIntegers.fromUnsignedByteArray(signature, FIELD_BYTES, FIELD_BYTES);
+  }
+
+  /**
+   * @return the recovery id, 0 to 3, of a header byte given either as a recovery id or in the
+   *     27 to 34 range of a signature header.
+   */
+  public static int recId(byte v) throws SignatureException {
+    int header = v < 27 ? v + 27 : v;
+    if (header < 27 || header > 34) {
+      throw new SignatureException("Header byte out of range: " + header);
+    }
+    if (header >= 31) {
+      header -= 4;
+    }
+    return header - 27;
+  }
+
+  public static void checkHash(byte[] messageHash) throws SignatureException {
+    if (messageHash == null || messageHash.length != FIELD_BYTES) {
+      throw new SignatureException("messageHash must be 32 bytes");
+    }
+  }
+
+  /**
+   * @return the point of x-coordinate {@code x + (recId / 2) * n} and y-parity {@code recId & 1}.
+   */
+  public ECPoint decompress(BigInteger x, int recId) throws SignatureException {
+    if (recId >= 2) {
+      x = x.add(n);
+    }
+    if (x.signum() < 0 || x.compareTo(p) >= 0) {
+      throw new SignatureException("Could not recover public key from signature");
+    }
+    byte[] encoded = SCRATCH.get().compressed;
+    encoded[0] = (byte) ((recId & 1) == 1 ? 0x03 : 0x02);
+    writeUnsigned(x, encoded, 1);
+    try {
+      return curve.decodePoint(encoded);
+    } catch (IllegalArgumentException e) {
+      throw new SignatureException("Could not recover public key from signature", e);
+    }
+  }
+
+  /**
+   * @return the 20-byte address of {@code a * G + b * R}.
+   */
+  public byte[] sumToAddress(BigInteger a, ECPoint r, BigInteger b) throws SignatureException {
+    ECPoint q = ECAlgorithms.sumOfTwoMultiplies(g, a, r, b).normalize();
+    if (q.isInfinity()) {
+      throw new SignatureException("Could not recover public key from signature");
+    }
+    byte[] pub = SCRATCH.get().pub;
+    System.arraycopy(q.getAffineXCoord().getEncoded(), 0, pub, 0, FIELD_BYTES);
+    System.arraycopy(q.getAffineYCoord().getEncoded(), 0, pub, FIELD_BYTES, FIELD_BYTES);
+    byte[] hash = Hash.sha3(pub, 0, pub.length);
+    return Arrays.copyOfRange(hash, 12, hash.length);
+  }
+
+  private static void writeUnsigned(BigInteger value, byte[] out, int offset) {
+    byte[] bytes = value.toByteArray();
+    int skip = bytes.length > FIELD_BYTES ? bytes.length - FIELD_BYTES : 0;
+    int pad = FIELD_BYTES - (bytes.length - skip);
+    Arrays.fill(out, offset, offset + pad, (byte) 0);
+    System.arraycopy(bytes, skip, out, offset + pad, bytes.length - skip);
+  }
+
+  private static void checkLength(byte[] signature) throws SignatureException {
+    if (signature == null || signature.length < SIGNATURE_LENGTH) {
+      throw new SignatureException("Signature truncated, expected 65 bytes and got "
+          + (signature == null ? 0 : signature.length));
+    }
+  }
+
+  private static final class Scratch {
+
+    private final byte[] compressed = new byte[1 + FIELD_BYTES];
+    private final byte[] pub = new byte[2 * FIELD_BYTES];
+  }
+}
@@ -24,10 +24,8 @@ public class MessageCodec extends ByteToMessageDecoder {
   protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out)
       throws Exception {
     int length = buffer.readableBytes();
-    byte[] encoded = new byte[length];
-    buffer.readBytes(encoded);
     try {
-      Message msg = createMessage(encoded);
+      Message msg = createMessage(buffer);
       channel.getNodeStatistics().tcpFlow.add(length);
       out.add(msg);
     } catch (Exception e) {
@@ -39,15 +37,19 @@ public class MessageCodec extends ByteToMessageDecoder {
     this.channel = channel;
   }
 
-  private Message createMessage(byte[] encoded) throws Exception {
-    byte type = encoded[0];
+  private Message createMessage(ByteBuf frame) throws Exception {
+    if (!frame.isReadable()) {
+      throw new P2pException(P2pException.TypeEnum.MESSAGE_WITH_WRONG_LENGTH, "messageType=unknow");
+    }
+    byte type = frame.getByte(frame.readerIndex());
     if (MessageTypes.inP2pRange(type)) {
-      return p2pMessageFactory.create(encoded);
+      return p2pMessageFactory.create(frame);
     }
     if (MessageTypes.inLedgerYiRange(type)) {
-      return ledgerYiMessageFactory.create(encoded);
+      return ledgerYiMessageFactory.create(frame);
     }
-    throw new P2pException(P2pException.TypeEnum.NO_SUCH_MESSAGE, "type=" + encoded[0]);
+    frame.skipBytes(frame.readableBytes());
+    throw new P2pException(P2pException.TypeEnum.NO_SUCH_MESSAGE, "type=" + type);
   }
 
 }
\ No newline at end of file
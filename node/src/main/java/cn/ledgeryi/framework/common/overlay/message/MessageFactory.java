@@ -1,9 +1,32 @@
 package cn.ledgeryi.framework.common.overlay.message;
 
 import cn.ledgeryi.chainbase.common.message.Message;
+import cn.ledgeryi.common.core.exception.P2pException;
+import io.netty.buffer.ByteBuf;
+import org.apache.commons.lang3.ArrayUtils;
 
 public abstract class MessageFactory {
 
-  protected abstract Message create(byte[] data) throws Exception;
+  protected Message create(byte[] data) throws Exception {
+    if (data.length == 0) {
+      throw new P2pException(P2pException.TypeEnum.MESSAGE_WITH_WRONG_LENGTH, "messageType=unknow");
+    }
+    return create(data[0], ArrayUtils.subarray(data, 1, data.length));
+  }
+
+  /**
+   * parse a frame straight from the inbound buffer, the payload is copied once, into the message.
+   */
+  public Message create(ByteBuf frame) throws Exception {
+    if (!frame.isReadable()) {
+      throw new P2pException(P2pException.TypeEnum.MESSAGE_WITH_WRONG_LENGTH, "messageType=unknow");
+    }
+    byte type = frame.readByte();
+    byte[] packed = new byte[frame.readableBytes()];
+    frame.readBytes(packed);
+    return create(type, packed);
+  }
+
+  protected abstract Message create(byte type, byte[] packed) throws Exception;
 
 }
@@ -2,31 +2,39 @@ package cn.ledgeryi.framework.common.overlay.message;
 
 import cn.ledgeryi.chainbase.core.message.MessageTypes;
 import cn.ledgeryi.common.core.exception.P2pException;
-import org.apache.commons.lang3.ArrayUtils;
+import io.netty.buffer.ByteBuf;
 
 public class P2pMessageFactory extends MessageFactory {
 
   @Override
   public P2pMessage create(byte[] data) throws Exception {
-    if (data.length <= 1) {
+    return (P2pMessage) super.create(data);
+  }
+
+  @Override
+  public P2pMessage create(ByteBuf frame) throws Exception {
+    return (P2pMessage) super.create(frame);
+  }
+
+  @Override
+  protected P2pMessage create(byte type, byte[] rawData) throws Exception {
+    if (rawData.length == 0) {
       throw new P2pException(P2pException.TypeEnum.MESSAGE_WITH_WRONG_LENGTH,
-          "messageType=" + (data.length == 1 ? data[0] : "unknow"));
+          "messageType=" + type);
     }
     try {
-      byte type = data[0];
-      byte[] rawData = ArrayUtils.subarray(data, 1, data.length);
-      return create(type, rawData);
+      return parse(type, rawData);
     } catch (Exception e) {
       if (e instanceof P2pException) {
         throw e;
       } else {
         throw new P2pException(P2pException.TypeEnum.PARSE_MESSAGE_FAILED,
-            "type=" + data[0] + ", len=" + data.length);
+            "type=" + type + ", len=" + (rawData.length + 1));
       }
     }
   }
 
-  private P2pMessage create(byte type, byte[] rawData) throws Exception {
+  private P2pMessage parse(byte type, byte[] rawData) throws Exception {
     MessageTypes messageType = MessageTypes.fromByte(type);
     if (messageType == null) {
       throw new P2pException(P2pException.TypeEnum.NO_SUCH_MESSAGE,
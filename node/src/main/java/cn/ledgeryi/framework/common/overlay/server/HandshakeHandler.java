@@ -53,9 +53,7 @@ public class HandshakeHandler extends ByteToMessageDecoder {
 
   @Override
   protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-    byte[] encoded = new byte[buffer.readableBytes()];
-    buffer.readBytes(encoded);
-    P2pMessage msg = messageFactory.create(encoded);
+    P2pMessage msg = messageFactory.create(buffer);
 
     log.info("Handshake Receive from {}, {}", ctx.channel().remoteAddress(), msg);
 
@@ -0,0 +1,38 @@
+package cn.ledgeryi.framework.common.overlay.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import java.util.List;
+
+/**
+ * Prepends the varint32 length of the frame like netty's ProtobufVarint32LengthFieldPrepender,
+ * but as a composite of a small header and the frame instead of copying the frame into a new
+ * buffer, so a block sent to many peers is not copied once per peer.
+ */
+@ChannelHandler.Sharable
+public class LedgerYiProtobufVarint32LengthFieldPrepender extends MessageToMessageEncoder<ByteBuf> {
+
+  private static final int MAX_VARINT32_SIZE = 5;
+
+  @Override
+  protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+    int length = msg.readableBytes();
+    byte[] header = new byte[MAX_VARINT32_SIZE];
+    int size = writeRawVarint32(header, length);
+    // the encoder releases msg once encode returns, the composite holds its own reference
+    out.add(Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(header, 0, size), msg.retain()));
+  }
+
+  private static int writeRawVarint32(byte[] header, int value) {
+    int size = 0;
+    while ((value & ~0x7F) != 0) {
+      header[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    header[size++] = (byte) value;
+    return size;
+  }
+}
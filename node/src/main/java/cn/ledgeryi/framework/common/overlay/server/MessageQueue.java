@@ -5,7 +5,12 @@ import cn.ledgeryi.protos.Protocol;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import java.util.Queue;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Scope;
@@ -13,62 +18,42 @@ import org.springframework.stereotype.Component;
 import cn.ledgeryi.framework.common.overlay.message.PingMessage;
 import cn.ledgeryi.framework.common.overlay.message.PongMessage;
 import cn.ledgeryi.framework.core.net.message.InventoryMessage;
+import cn.ledgeryi.framework.core.net.message.TransactionInventoryMessage;
+import cn.ledgeryi.framework.core.net.message.TransactionMessage;
 import cn.ledgeryi.framework.core.net.message.TransactionsMessage;
 
+/**
+ * Outbound messages of one peer. Messages are written on the event loop of the peer's channel:
+ * every drain writes what is queued, blocks and other messages before transactions, and flushes
+ * once. A drain stops while the channel is not writable and resumes when it is again, so a slow
+ * peer backs its queues up instead of netty's outbound buffer.
+ */
 @Slf4j(topic = "net")
 @Component
 @Scope("prototype")
 public class MessageQueue {
 
-  private final static ScheduledExecutorService sendTimer =
-          Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "sendTimer"));
+  private static final int MAX_BLOCK_QUEUE_SIZE = 2_000;
+  private static final int MAX_TX_QUEUE_SIZE = 20_000;
 
   private volatile boolean sendMsgFlag = false;
   private volatile long sendTime;
   private volatile long sendPing;
-  private Thread sendMsgThread;
   private Channel channel;
   private ChannelHandlerContext ctx = null;
   private final Queue<MessageRoundtrip> requestQueue = new ConcurrentLinkedQueue<>();
-  private final BlockingQueue<Message> msgQueue = new LinkedBlockingQueue<>();
-  private ScheduledFuture<?> sendTask;
+  private final Queue<Message> blockQueue = new ConcurrentLinkedQueue<>();
+  private final Queue<Message> txQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger blockQueueSize = new AtomicInteger();
+  private final AtomicInteger txQueueSize = new AtomicInteger();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private volatile ScheduledFuture<?> timeoutTask;
 
 
   public void activate(ChannelHandlerContext ctx) {
     this.ctx = ctx;
     sendMsgFlag = true;
-    sendTask = sendTimer.scheduleAtFixedRate(() -> {
-      try {
-        if (sendMsgFlag) {
-          send();
-        }
-      } catch (Exception e) {
-        log.error("[MessageQueue] [sendMsgThread] Unhandled exception", e);
-      }
-    }, 10, 10, TimeUnit.MILLISECONDS);
-
-    sendMsgThread = new Thread(() -> {
-      while (sendMsgFlag) {
-        try {
-          if (msgQueue.isEmpty()) {
-            Thread.sleep(10);
-            continue;
-          }
-          // the type of msg is TX , BLOCK , PING or PONG
-          Message msg = msgQueue.take();
-          ctx.writeAndFlush(msg.getSendData()).addListener((ChannelFutureListener) future -> {
-            if (!future.isSuccess() && !channel.isDisconnect()) {
-              log.error("Fail send to {}, {}", ctx.channel().remoteAddress(), msg);
-            }
-          });
-          log.debug("[MessageQueue] [sendMsgThread] Send to {}, {} ", ctx.channel().remoteAddress(), msg);
-        } catch (Exception e) {
-          log.error("[MessageQueue] [sendMsgThread] Fail send to {}, error info: {}", ctx.channel().remoteAddress(), e.getMessage());
-        }
-      }
-    });
-    sendMsgThread.setName("sendMsgThread-TX-BLOCK-PING-PONG" + ctx.channel().remoteAddress());
-    sendMsgThread.start();
+    scheduleDrain();
   }
 
   public void setChannel(Channel channel) {
@@ -85,16 +70,24 @@ public class MessageQueue {
     }
 
     log.debug("[MessageQueue] [sendMessage] Send to msgQueue {}, {} ", ctx.channel().remoteAddress(), msg);
-    channel.getNodeStatistics().messageStatistics.addTcpOutMessage(msg);
-    sendTime = System.currentTimeMillis();
     if (msg.getAnswerMessage() != null) {
       requestQueue.add(new MessageRoundtrip(msg));
-    } else {
-      msgQueue.offer(msg);
+    } else if (!offer(msg)) {
+      return false;
     }
+    channel.getNodeStatistics().messageStatistics.addTcpOutMessage(msg);
+    sendTime = System.currentTimeMillis();
+    scheduleDrain();
     return true;
   }
 
+  /**
+   * the channel can take writes again, resume sending.
+   */
+  public void channelWritable() {
+    scheduleDrain();
+  }
+
   public void receivedMessage(Message msg) {
     log.debug("[MessageQueue] [receivedMessage] Receive from {}, {}, ID:{}", ctx.channel().remoteAddress(), msg, msg.getMessageId().toString());
     channel.getNodeStatistics().messageStatistics.addTcpInMessage(msg);
@@ -104,23 +97,21 @@ public class MessageQueue {
       if (rt.getMsg() instanceof PingMessage) {
         channel.getNodeStatistics().pingMessageLatency.add(System.currentTimeMillis() - rt.getTime());
       }
+      // the next request can go out
+      scheduleDrain();
     }
   }
 
   public void close() {
     sendMsgFlag = false;
-    if (sendTask != null && !sendTask.isCancelled()) {
-      sendTask.cancel(false);
-      sendTask = null;
-    }
-    if (sendMsgThread != null) {
-      try {
-        sendMsgThread.join(20);
-        sendMsgThread = null;
-      } catch (Exception e) {
-        log.warn("Join send thread failed, peer {}", ctx.channel().remoteAddress());
-      }
+    if (timeoutTask != null && !timeoutTask.isCancelled()) {
+      timeoutTask.cancel(false);
+      timeoutTask = null;
     }
+    blockQueue.clear();
+    blockQueueSize.set(0);
+    txQueue.clear();
+    txQueueSize.set(0);
   }
 
   private boolean needToLog(Message msg) {
@@ -138,31 +129,125 @@ public class MessageQueue {
     return true;
   }
 
-  private void send() {
-    MessageRoundtrip rt = requestQueue.peek();
-    if (!sendMsgFlag || rt == null) {
-      return;
+  private static boolean isTxMessage(Message msg) {
+    if (msg instanceof TransactionMessage || msg instanceof TransactionsMessage) {
+      return true;
     }
-    if (rt.getRetryTimes() > 0 && !rt.hasToRetry()) {
-      return;
+    return msg instanceof InventoryMessage
+        && ((InventoryMessage) msg).getInventoryType().equals(Protocol.Inventory.InventoryType.TX);
+  }
+
+  /**
+   * @return whether nothing waits for the message: a tx announcement, not a reply to a fetch or
+   *     a fetch of ours.
+   */
+  private static boolean isTxAnnouncement(Message msg) {
+    return (msg.getClass() == InventoryMessage.class || msg instanceof TransactionInventoryMessage)
+        && ((InventoryMessage) msg).getInventoryType().equals(Protocol.Inventory.InventoryType.TX);
+  }
+
+  private boolean offer(Message msg) {
+    if (isTxMessage(msg)) {
+      if (txQueueSize.incrementAndGet() > MAX_TX_QUEUE_SIZE && isTxAnnouncement(msg)) {
+        // the peer can still get the transactions from its other peers, fetches and their
+        // replies are always queued, the other side times out waiting for them
+        txQueueSize.decrementAndGet();
+        log.warn("Tx queue of {} is full, drop {}", ctx.channel().remoteAddress(), msg);
+        return false;
+      }
+      txQueue.offer(msg);
+      return true;
     }
-    if (rt.getRetryTimes() > 0) {
-      channel.getNodeStatistics().nodeDisconnectedLocal(Protocol.ReasonCode.PING_TIMEOUT);
-      log.warn("Wait {} timeout. close channel {}.", rt.getMsg().getAnswerMessage(), ctx.channel().remoteAddress());
+    if (blockQueueSize.incrementAndGet() > MAX_BLOCK_QUEUE_SIZE) {
+      blockQueueSize.decrementAndGet();
+      log.warn("Send queue of {} is full, close channel.", ctx.channel().remoteAddress());
       channel.close();
+      return false;
+    }
+    blockQueue.offer(msg);
+    return true;
+  }
+
+  private Message poll() {
+    Message msg = blockQueue.poll();
+    if (msg != null) {
+      blockQueueSize.decrementAndGet();
+      return msg;
+    }
+    msg = txQueue.poll();
+    if (msg != null) {
+      txQueueSize.decrementAndGet();
+    }
+    return msg;
+  }
+
+  private void scheduleDrain() {
+    if (!sendMsgFlag || !drainScheduled.compareAndSet(false, true)) {
       return;
     }
+    try {
+      ctx.executor().execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      drainScheduled.set(false);
+      log.warn("Send to {} rejected, the channel is closing", ctx.channel().remoteAddress());
+    }
+  }
 
-    Message msg = rt.getMsg();
+  /**
+   * runs on the event loop of the channel, write everything the channel takes and flush once.
+   */
+  private void drain() {
+    drainScheduled.set(false);
+    if (!sendMsgFlag) {
+      return;
+    }
+    boolean written = sendRequest();
+    while (ctx.channel().isWritable()) {
+      Message msg = poll();
+      if (msg == null) {
+        break;
+      }
+      write(msg);
+      log.debug("[MessageQueue] [drain] Send to {}, {} ", ctx.channel().remoteAddress(), msg);
+      written = true;
+    }
+    if (written) {
+      ctx.flush();
+    }
+  }
 
-    ctx.writeAndFlush(msg.getSendData()).addListener((ChannelFutureListener) future -> {
-      if (!future.isSuccess()) {
+  private void write(Message msg) {
+    ctx.write(msg.getSendData()).addListener((ChannelFutureListener) future -> {
+      if (!future.isSuccess() && !channel.isDisconnect()) {
         log.error("Fail send to {}, {}", ctx.channel().remoteAddress(), msg);
       }
     });
+  }
 
+  /**
+   * send the request at the head of the queue if it is not sent yet, the next one goes out once
+   * it is answered.
+   */
+  private boolean sendRequest() {
+    MessageRoundtrip rt = requestQueue.peek();
+    if (rt == null || rt.getRetryTimes() > 0) {
+      return false;
+    }
+    write(rt.getMsg());
     rt.incRetryTimes();
     rt.saveTime();
+    timeoutTask = ctx.executor().schedule(() -> checkTimeout(rt), MessageRoundtrip.TIMEOUT,
+        TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  private void checkTimeout(MessageRoundtrip rt) {
+    if (!sendMsgFlag || requestQueue.peek() != rt) {
+      return;
+    }
+    channel.getNodeStatistics().nodeDisconnectedLocal(Protocol.ReasonCode.PING_TIMEOUT);
+    log.warn("Wait {} timeout. close channel {}.", rt.getMsg().getAnswerMessage(), ctx.channel().remoteAddress());
+    channel.close();
   }
 
 }
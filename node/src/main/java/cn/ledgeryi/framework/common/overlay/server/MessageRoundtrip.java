@@ -4,6 +4,11 @@ import cn.ledgeryi.chainbase.common.message.Message;
 
 public class MessageRoundtrip {
 
+  /**
+   * how long the answer may take, in milliseconds.
+   */
+  public static final long TIMEOUT = 20000;
+
   private final Message msg;
   private long time = 0;
   private long retryTimes = 0;
@@ -30,7 +35,7 @@ public class MessageRoundtrip {
   }
 
   public boolean hasToRetry() {
-    return 20000 < System.currentTimeMillis() - time;
+    return TIMEOUT < System.currentTimeMillis() - time;
   }
 
   public Message getMsg() {
@@ -156,7 +156,12 @@ public class Wallet {
         dbManager.getTransactionIdCache().put(tx.getTransactionId(), true);
       }
 
-      dbManager.pushTransaction(tx);
+      if (!dbManager.pushTransaction(tx)) {
+        // dropped by the full pending pool, let the client retry it
+        dbManager.getTransactionIdCache().invalidate(tx.getTransactionId());
+        log.warn("Broadcast transaction {} has failed, pending pool is full.", tx.getTransactionId());
+        return builder.setResult(false).setCode(response_code.SERVER_BUSY).build();
+      }
       ledgerYiNetService.broadcast(message);
       return builder.setResult(true).setCode(response_code.SUCCESS).build();
     } catch (ValidateSignatureException e) {
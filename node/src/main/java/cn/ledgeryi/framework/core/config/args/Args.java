@@ -9,6 +9,7 @@ import cn.ledgeryi.chainbase.core.config.args.GenesisBlock;
 import cn.ledgeryi.chainbase.core.store.AccountStore;
 import cn.ledgeryi.common.core.Constant;
 import cn.ledgeryi.common.utils.DecodeUtil;
+import cn.ledgeryi.contract.vm.config.VmConfig;
 import cn.ledgeryi.framework.common.overlay.discover.node.Node;
 import cn.ledgeryi.framework.core.config.Configuration;
 import cn.ledgeryi.framework.core.db.backup.DbBackupConfig;
@@ -263,6 +264,14 @@ public class Args {
   //@Parameter(names = {"--validate-sign-thread"}, description = "Num of validate thread")
   private int validateSignThreadNum;
 
+  @Getter
+  @Setter
+  private int parallelExecThreadNum;
+
+  @Getter
+  @Setter
+  private int txFanout;
+
   @Getter
   @Setter
   private int tcpNettyWorkThreadNum;
@@ -319,6 +328,10 @@ public class Args {
   @Setter
   private boolean vmTrace;
 
+  @Getter
+  @Setter
+  private boolean vmFastDispatch;
+
   @Getter
   @Setter
   private String txReferenceBlock;
@@ -584,6 +597,12 @@ public class Args {
     INSTANCE.validateSignThreadNum = config.hasPath(Constant.NODE_VALIDATE_SIGN_THREAD_NUM) ?
             config.getInt(Constant.NODE_VALIDATE_SIGN_THREAD_NUM) : Runtime.getRuntime().availableProcessors() / 2;
 
+    INSTANCE.parallelExecThreadNum = config.hasPath(Constant.NODE_PARALLEL_EXEC_THREAD_NUM) ?
+            config.getInt(Constant.NODE_PARALLEL_EXEC_THREAD_NUM) : 0;
+
+    INSTANCE.txFanout = config.hasPath(Constant.NODE_TX_FANOUT) ?
+            config.getInt(Constant.NODE_TX_FANOUT) : 0;
+
     INSTANCE.walletExtensionApi = config.hasPath(Constant.NODE_WALLET_EXTENSION_API) && config.getBoolean(Constant.NODE_WALLET_EXTENSION_API);
 
     INSTANCE.connectFactor =  config.hasPath(Constant.NODE_CONNECT_FACTOR) ? config.getDouble(Constant.NODE_CONNECT_FACTOR) : 0.3;
@@ -635,6 +654,10 @@ public class Args {
     INSTANCE.actuatorSet = config.hasPath(Constant.ACTUATOR_WHITELIST)
             ? new HashSet<>(config.getStringList(Constant.ACTUATOR_WHITELIST)) : Collections.emptySet();
 
+    INSTANCE.vmFastDispatch =
+        config.hasPath(Constant.VM_FAST_DISPATCH) && config.getBoolean(Constant.VM_FAST_DISPATCH);
+    VmConfig.setFastDispatch(INSTANCE.vmFastDispatch);
+
     logConfig();
     initDBConfig(INSTANCE);
   }
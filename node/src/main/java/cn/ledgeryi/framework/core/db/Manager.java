@@ -1,11 +1,14 @@
 package cn.ledgeryi.framework.core.db;
 
 import cn.ledgeryi.chainbase.common.message.Message;
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
 import cn.ledgeryi.chainbase.core.ChainBaseManager;
 import cn.ledgeryi.chainbase.core.capsule.*;
 import cn.ledgeryi.chainbase.core.config.Parameter;
 import cn.ledgeryi.chainbase.core.config.args.GenesisBlock;
 import cn.ledgeryi.chainbase.core.db.*;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import cn.ledgeryi.chainbase.core.db2.core.ExecutionView;
 import cn.ledgeryi.chainbase.core.db2.core.ILedgerYiBase;
 import cn.ledgeryi.chainbase.core.db2.core.ISession;
 import cn.ledgeryi.chainbase.core.db2.core.SnapshotManager;
@@ -13,6 +16,7 @@ import cn.ledgeryi.chainbase.core.store.*;
 import cn.ledgeryi.common.core.Constant;
 import cn.ledgeryi.common.core.exception.*;
 import cn.ledgeryi.common.utils.ByteArray;
+import cn.ledgeryi.common.utils.HashStats;
 import cn.ledgeryi.common.utils.Pair;
 import cn.ledgeryi.common.utils.Sha256Hash;
 import cn.ledgeryi.consenus.Consensus;
@@ -29,7 +33,6 @@ import cn.ledgeryi.framework.core.config.args.Args;
 import cn.ledgeryi.framework.core.exception.*;
 import cn.ledgeryi.framework.core.net.LedgerYiNetService;
 import cn.ledgeryi.protos.Protocol;
-import cn.ledgeryi.protos.Protocol.Transaction.Contract;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
@@ -45,9 +48,12 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import static cn.ledgeryi.chainbase.core.config.Parameter.NodeConstant.MAX_TRANSACTION_PENDING;
+import static cn.ledgeryi.chainbase.core.config.Parameter.NodeConstant.MAX_TRANSACTION_PENDING_BYTES;
 
 @Slf4j(topic = "DB")
 @Component
@@ -112,12 +118,20 @@ public class Manager {
   private final Cache<Sha256Hash, Boolean> transactionIdCache = CacheBuilder.newBuilder().maximumSize(100_000).recordStats().build();
   @Getter
   private final ForkController forkController = ForkController.instance();
-  private ExecutorService validateSignService;
+  @Autowired
+  @Getter
+  private SignatureVerifier signatureVerifier;
+  private SpeculativeExecutor speculativeExecutor;
   private boolean isRunRepushThread = true;
-  private final Set<String> ownerAddressSet = new HashSet<>();
-  private List<TransactionCapsule> pendingTransactions;
+  private final Set<WrappedByteArray> ownerAddressSet = new HashSet<>();
+  private TransactionPool pendingTransactions;
   private final BlockingQueue<TransactionCapsule> pushTransactionQueue = new LinkedBlockingQueue<>();
-  private BlockingQueue<TransactionCapsule> repushTransactions; // the capacity is equal to Integer.MAX_VALUE default
+  // bounded, room for the whole pending pool plus the transactions of a popped block
+  private BlockingQueue<TransactionCapsule> repushTransactions;
+  private final AtomicLong repushDropped = new AtomicLong();
+  // pushed transactions whose execution outside the monitor was applied, or had to be redone
+  private final LongAdder viewCommitted = new LongAdder();
+  private final LongAdder viewReExecuted = new LongAdder();
 
   /**
    * Cycle thread to repush Transactions
@@ -157,7 +171,7 @@ public class Manager {
     return this.masterScheduleStore;
   }
 
-  public List<TransactionCapsule> getPendingTransactions() {
+  public TransactionPool getPendingTransactions() {
     return this.pendingTransactions;
   }
 
@@ -169,6 +183,17 @@ public class Manager {
     return repushTransactions;
   }
 
+  /**
+   * @return how many transactions did not fit the repush queue and were dropped.
+   */
+  public long getRepushDroppedCount() {
+    return repushDropped.get();
+  }
+
+  public void addRepushDropped(long count) {
+    repushDropped.addAndGet(count);
+  }
+
   public BlockCapsule getHead() throws HeaderNotFound {
     List<BlockCapsule> blocks = getBlockStore().getBlockByLatestNum(1);
     if (CollectionUtils.isNotEmpty(blocks)) {
@@ -217,8 +242,8 @@ public class Manager {
     Message.setDynamicPropertiesStore(this.getDynamicPropertiesStore());
     revokingStore.disable();
     revokingStore.check();
-    this.pendingTransactions = Collections.synchronizedList(Lists.newArrayList());
-    this.repushTransactions = new LinkedBlockingQueue<>();
+    this.pendingTransactions = new TransactionPool(MAX_TRANSACTION_PENDING, MAX_TRANSACTION_PENDING_BYTES);
+    this.repushTransactions = new LinkedBlockingQueue<>(2 * MAX_TRANSACTION_PENDING);
 
     this.initGenesis();
     try {
@@ -236,7 +261,9 @@ public class Manager {
     forkController.init(this);
 
     revokingStore.enable();
-    validateSignService = Executors.newFixedThreadPool(Args.getInstance().getValidateSignThreadNum());
+    // speculative executions are isolated by the snapshot chain, which version 1 stores do not use
+    speculativeExecutor = new SpeculativeExecutor(this::processTransaction,
+        DBConfig.getDbVersion() == 2 ? Args.getInstance().getParallelExecThreadNum() : 0);
 
     Thread repushThread = new Thread(repushLoop);
     repushThread.start();
@@ -357,27 +384,49 @@ public class Manager {
 
   /**
    * push transaction into pending.
+   *
+   * <p>The transaction is first executed without the manager monitor, in an {@link ExecutionView}
+   * over the pending state, so concurrent pushes execute in parallel. Under the monitor its writes
+   * are only applied if everything it read is still current, otherwise, or if it failed, it is
+   * executed again there as before.
    */
   public boolean pushTransaction(final TransactionCapsule tx)
           throws ValidateSignatureException, ContractValidateException, DupTransactionException, TaposException,
           TooBigTransactionException, TransactionExpirationException, ReceiptCheckErrException, ContractExeException, VMIllegalException {
 
+    if (pendingTransactions.contains(tx.getTransactionId())) {
+      throw new DupTransactionException("dup trans");
+    }
+
     synchronized (pushTransactionQueue) {
       pushTransactionQueue.add(tx);
     }
 
     try {
-      if (!tx.validateSignature()) {
-        throw new ValidateSignatureException("trans sig validate failed");
+      signatureVerifier.verify(tx);
+      if (!pendingTransactions.admits(tx)) {
+        log.debug("pending pool is full, drop tx {}", tx.getTransactionId());
+        return false;
       }
+      ExecutionView view = executeInView(tx);
 
       synchronized (this) {
+        if (!pendingTransactions.admits(tx)) {
+          log.debug("pending pool is full, drop tx {}", tx.getTransactionId());
+          return false;
+        }
         if (!session.valid()) {
           session.setValue(revokingStore.buildSession());
         }
 
         try (ISession tmpSession = revokingStore.buildSession()) {
-          processTransaction(tx, null);
+          if (view != null && view.validate()) {
+            view.commit();
+            viewCommitted.increment();
+          } else {
+            viewReExecuted.increment();
+            processTransaction(tx, null);
+          }
           pendingTransactions.add(tx);
           tmpSession.merge();
         } catch (Exception e){
@@ -391,6 +440,26 @@ public class Manager {
     return true;
   }
 
+  /**
+   * Execute {@code tx} against the pending state in a view of its own, without the monitor.
+   *
+   * @return the view holding the reads and writes of the execution, null if it failed or the
+   *     stores do not support views (db.version = 1).
+   */
+  private ExecutionView executeInView(TransactionCapsule tx) {
+    if (DBConfig.getDbVersion() != 2) {
+      return null;
+    }
+    ExecutionView view = new ExecutionView();
+    try {
+      view.execute(() -> processTransaction(tx, null));
+      return view;
+    } catch (Exception e) {
+      // executed again under the monitor, which reports the failure
+      return null;
+    }
+  }
+
   /**
    * when switch fork need erase blocks on fork branch.
    */
@@ -565,7 +634,7 @@ public class Manager {
     //clear ownerAddressSet
     synchronized (pushTransactionQueue) {
       if (CollectionUtils.isNotEmpty(ownerAddressSet)) {
-        Set<String> result = new HashSet<>();
+        Set<WrappedByteArray> result = new HashSet<>();
         for (TransactionCapsule transactionCapsule : repushTransactions) {
           filterOwnerAddress(transactionCapsule, result);
         }
@@ -578,6 +647,10 @@ public class Manager {
     }
     log.debug("pushBlock block number:{}, cost/txs:{}/{}",
         block.getNum(), System.currentTimeMillis() - start, block.getTransactions().size());
+    if (log.isDebugEnabled()) {
+      // rates since the previous pushed block
+      log.debug("hashes per second: {}", HashStats.sampleAll());
+    }
   }
 
   public void updateDynamicProperties(BlockCapsule block) {
@@ -718,65 +791,73 @@ public class Manager {
     session.reset();
     session.setValue(revokingStore.buildSession());
 
+    BlockAssembler assembler = new BlockAssembler(blockCapsule, Parameter.ChainConstant.BLOCK_SIZE);
     Iterator<TransactionCapsule> iterator = pendingTransactions.iterator();
-    while (iterator.hasNext()) {
+    storageRowStore.openBlockCache();
+    // the state of the generated block is reset below, its usage is never written
+    openUsageBatches();
+    try {
+      while (iterator.hasNext()) {
 
-      // check timeout
-      /*if (System.currentTimeMillis() > timeout) {
-        log.warn("Processing transaction time exceeds the producing time.");
-        break;
-      }*/
+        // check timeout
+        /*if (System.currentTimeMillis() > timeout) {
+          log.warn("Processing transaction time exceeds the producing time.");
+          break;
+        }*/
 
-      TransactionCapsule tx = iterator.next();
+        TransactionCapsule tx = iterator.next();
 
-      // check the block size
-      long blockSize = blockCapsule.getInstance().getSerializedSize() + tx.getSerializedSize() + 3;
-      if (blockSize > Parameter.ChainConstant.BLOCK_SIZE) {
-        log.info("block size is {}, exceed {}", blockSize, Parameter.ChainConstant.BLOCK_SIZE);
-        break;
-      }
+        // check the block size
+        if (!assembler.fits(tx)) {
+          log.info("block size is {}, exceed {}", assembler.sizeWith(tx), Parameter.ChainConstant.BLOCK_SIZE);
+          break;
+        }
 
-      Contract contract = tx.getInstance().getRawData().getContract();
-      byte[] owner = TransactionCapsule.getOwner(contract);
-      String ownerAddress = ByteArray.toHexString(owner);
-      if (ownerAddressSet.contains(ownerAddress)) {
-        tx.setVerified(false);
-      }
+        if (ownerAddressSet.contains(WrappedByteArray.of(tx.getOwnerAddress()))) {
+          tx.setVerified(false);
+        }
 
-      // process transaction
-      try (ISession tmpSession = revokingStore.buildSession()) {
-        boolean dupTrans = false;
-        String txID = Hex.toHexString(tx.getTransactionId().getBytes());
-        List<Protocol.Transaction> transactions = blockCapsule.getInstance().getTransactionsList();
-        for (Protocol.Transaction transaction : transactions) {
-          TransactionCapsule transactionCapsule = new TransactionCapsule(transaction);
-          if (txID.equals(Hex.toHexString(transactionCapsule.getTransactionId().getBytes()))) {
-            dupTrans = true;
-            break;
+        // process transaction
+        try (ISession tmpSession = revokingStore.buildSession()) {
+          if (!assembler.contains(tx)) {
+            processTransaction(tx, blockCapsule);
+            tmpSession.merge();
+            assembler.add(tx);
           }
+        } catch (Exception e) {
+          // the session of the transaction is reverted, so are the rows it wrote
+          storageRowStore.invalidateBlockCache();
+          log.debug("Process tx failed when generating block: {}", e.getMessage());
+        } finally {
+          iterator.remove();
         }
-        if (!dupTrans){
-          processTransaction(tx, blockCapsule);
-          tmpSession.merge();
-          blockCapsule.addTransaction(tx);
-        }
-      } catch (Exception e) {
-        log.debug("Process tx failed when generating block: {}", e.getMessage());
-      } finally {
-        iterator.remove();
-      }
-    } //end while
+      } //end while
+    } finally {
+      storageRowStore.closeBlockCache();
+      discardUsageBatches();
+    }
     session.reset();
+    assembler.build();
     blockCapsule.setMerkleRoot();
     blockCapsule.sign(miner.getPrivateKey());
-    log.debug("Generate block success, pendingCount: {}, repushCount: {}", pendingTransactions.size(), repushTransactions.size());
+    log.debug("Generate block success, pending: {}, repushCount: {}, repushDropped: {}, "
+            + "pushed in view: {}, pushed again: {}", pendingTransactions, repushTransactions.size(),
+        repushDropped.get(), viewCommitted.sum(), viewReExecuted.sum());
     return blockCapsule;
   }
 
-  private void filterOwnerAddress(TransactionCapsule transactionCapsule, Set<String> result) {
-    Protocol.Transaction.Contract contract = transactionCapsule.getInstance().getRawData().getContract();
-    byte[] owner = TransactionCapsule.getOwner(contract);
-    String ownerAddress = ByteArray.toHexString(owner);
+  private void openUsageBatches() {
+    chainBaseManager.getCpuTimeUsedStore().openBatch();
+    chainBaseManager.getStorageUsedStore().openBatch();
+  }
+
+  private void discardUsageBatches() {
+    chainBaseManager.getCpuTimeUsedStore().discardBatch();
+    chainBaseManager.getStorageUsedStore().discardBatch();
+  }
+
+  private void filterOwnerAddress(TransactionCapsule transactionCapsule, Set<WrappedByteArray> result) {
+    WrappedByteArray ownerAddress = WrappedByteArray.of(transactionCapsule.getOwnerAddress());
     if (ownerAddressSet.contains(ownerAddress)) {
       result.add(ownerAddress);
     }
@@ -804,14 +885,11 @@ public class Manager {
     if (!consensus.validBlock(block)) {
       throw new ValidateScheduleException("validateMasterSchedule error");
     }
-    //parallel check sign
+    //parallel check sign, transactions verified when they were received are skipped
     if (!block.generatedByMyself) {
-      try {
-        preValidateTransactionSign(block);
-      } catch (InterruptedException e) {
-        log.error("parallel check sign interrupted exception! block info: {}", block, e);
-        Thread.currentThread().interrupt();
-      }
+      log.debug("PreValidate Transaction Sign, size:{},block num:{}", block.getTransactions().size(),
+          block.getNum());
+      signatureVerifier.verify(block.getTransactions());
     }
 
     TransactionRetCapsule transactionRetCapsule = new TransactionRetCapsule(block);
@@ -820,11 +898,35 @@ public class Manager {
       if (block.generatedByMyself) {
         transactionCapsule.setVerified(true);
       }
-      Protocol.TransactionInfo result = processTransaction(transactionCapsule, block);
-      transactionStore.put(transactionCapsule.getTransactionId().getBytes(), transactionCapsule);
-      if (Objects.nonNull(result)) {
-        transactionRetCapsule.addTransactionInfo(result);
+    }
+    List<Future<SpeculativeExecutor.Speculation>> speculations = speculativeExecutor.speculate(block);
+    // committed speculations write rows behind the back of the row cache, use one or the other
+    if (speculations.isEmpty()) {
+      storageRowStore.openBlockCache();
+    }
+    openUsageBatches();
+    try {
+      for (int i = 0; i < block.getTransactions().size(); i++) {
+        TransactionCapsule transactionCapsule = block.getTransactions().get(i);
+        Protocol.TransactionInfo result = speculations.isEmpty() ? null
+            : speculativeExecutor.commit(speculations.get(i), transactionCapsule);
+        if (result == null) {
+          result = processTransaction(transactionCapsule, block);
+        }
+        transactionStore.put(transactionCapsule.getTransactionId().getBytes(), transactionCapsule);
+        if (Objects.nonNull(result)) {
+          transactionRetCapsule.addTransactionInfo(result);
+        }
       }
+      chainBaseManager.getCpuTimeUsedStore().flushBatch();
+      chainBaseManager.getStorageUsedStore().flushBatch();
+    } finally {
+      speculativeExecutor.cancel(speculations);
+      storageRowStore.closeBlockCache();
+      discardUsageBatches();
+    }
+    if (!speculations.isEmpty()) {
+      log.debug("speculative execution of block {}: {}", block.getNum(), speculativeExecutor);
     }
     block.setResult(transactionRetCapsule);
 
@@ -833,6 +935,7 @@ public class Manager {
     }
 
     updateTransHashCache(block);
+    updatePendingTransactions(block);
     updateRecentBlock(block);
     updateDynamicProperties(block);
   }
@@ -843,6 +946,13 @@ public class Manager {
     }
   }
 
+  private void updatePendingTransactions(BlockCapsule block) {
+    for (TransactionCapsule transactionCapsule : block.getTransactions()) {
+      pendingTransactions.remove(transactionCapsule.getTransactionId());
+    }
+    pendingTransactions.evictExpired(block.getTimeStamp());
+  }
+
   private void updateRecentBlock(BlockCapsule block) {
     this.recentBlockStore.put(ByteArray.subArray( ByteArray.fromLong(block.getNum()), 6, 8),
         new BytesCapsule(ByteArray.subArray(block.getBlockId().getBytes(), 8, 16)));
@@ -900,31 +1010,6 @@ public class Manager {
     return getPendingTransactions().size() + getRepushTransactions().size() > MAX_TRANSACTION_PENDING;
   }
 
-  public void preValidateTransactionSign(BlockCapsule block)
-      throws InterruptedException, ValidateSignatureException {
-    log.debug("PreValidate Transaction Sign, size:" + block.getTransactions().size() + ",block num:" + block.getNum());
-    int transSize = block.getTransactions().size();
-    if (transSize <= 0) {
-      return;
-    }
-    CountDownLatch countDownLatch = new CountDownLatch(transSize);
-    List<Future<Boolean>> futures = new ArrayList<>(transSize);
-
-    for (TransactionCapsule transaction : block.getTransactions()) {
-      Future<Boolean> future = validateSignService.submit(new ValidateSignTask(transaction, countDownLatch, this));
-      futures.add(future);
-    }
-    countDownLatch.await();
-
-    for (Future<Boolean> future : futures) {
-      try {
-        future.get();
-      } catch (ExecutionException e) {
-        throw new ValidateSignatureException(e.getCause().getMessage());
-      }
-    }
-  }
-
   public void rePush(TransactionCapsule tx) {
     if (containsTransaction(tx)) {
       return;
@@ -951,28 +1036,4 @@ public class Manager {
     StoreFactory.getInstance().setChainBaseManager(chainBaseManager);
   }
 
-  private static class ValidateSignTask implements Callable<Boolean> {
-
-    private TransactionCapsule tx;
-    private CountDownLatch countDownLatch;
-    private Manager manager;
-
-    ValidateSignTask(TransactionCapsule tx, CountDownLatch countDownLatch, Manager manager) {
-      this.tx = tx;
-      this.countDownLatch = countDownLatch;
-      this.manager = manager;
-    }
-
-    @Override
-    public Boolean call() throws ValidateSignatureException {
-      try {
-        tx.validateSignature();
-      } catch (ValidateSignatureException e) {
-        throw e;
-      } finally {
-        countDownLatch.countDown();
-      }
-      return true;
-    }
-  }
 }
@@ -24,17 +24,19 @@ public class PendingManager implements AutoCloseable {
   @Override
   public void close() {
 
+    // never block here, the caller holds the manager and the repush thread needs it to drain
+    int dropped = 0;
     for (TransactionCapsule tx : tmpTransactions) {
-      try {
-        if (tx.getTxTrace() != null) {
-          dbManager.getRepushTransactions().put(tx);
-        }
-      } catch (InterruptedException e) {
-        log.error(e.getMessage());
-        Thread.currentThread().interrupt();
+      if (tx.getTxTrace() != null && !dbManager.getRepushTransactions().offer(tx)) {
+        dropped++;
       }
     }
     tmpTransactions.clear();
+    if (dropped > 0) {
+      dbManager.addRepushDropped(dropped);
+      log.warn("Repush queue is full, drop {} txs, {} dropped in total.", dropped,
+          dbManager.getRepushDroppedCount());
+    }
 
     /*for (TransactionCapsule tx : dbManager.getPoppedTransactions()) {
       try {
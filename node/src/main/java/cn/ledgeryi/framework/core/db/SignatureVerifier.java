@@ -0,0 +1,181 @@
+package cn.ledgeryi.framework.core.db;
+
+import cn.ledgeryi.chainbase.core.capsule.TransactionCapsule;
+import cn.ledgeryi.common.core.exception.ValidateSignatureException;
+import cn.ledgeryi.common.utils.Sha256Hash;
+import cn.ledgeryi.framework.core.config.args.Args;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transaction signature verification shared by network ingress, the wallet api and block
+ * processing.
+ *
+ * <p>A verified signature is remembered by transaction id, so a transaction checked when it was
+ * received is not recovered again when it comes back in a block. The id does not cover the
+ * signature, the cache therefore keeps the signature it verified and only answers for the same
+ * one. Batches and prefetches run on a work-stealing pool, a single transaction is verified on
+ * the calling thread, and a transaction already being verified is waited for rather than
+ * verified twice.
+ */
+@Slf4j(topic = "DB")
+@Component
+public class SignatureVerifier {
+
+  private static final int MAX_CACHED = 100_000;
+
+  private final Cache<Sha256Hash, ByteString> verified =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED).build();
+  private final Map<Sha256Hash, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+  private final ForkJoinPool pool =
+      new ForkJoinPool(Math.max(1, Args.getInstance().getValidateSignThreadNum()));
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder recovered = new LongAdder();
+
+  /**
+   * Verify the signature of {@code tx} on the calling thread unless it is known already, or wait
+   * for the verification of the same id that is already running.
+   */
+  public void verify(TransactionCapsule tx) throws ValidateSignatureException {
+    if (isKnown(tx)) {
+      return;
+    }
+    if (!inFlight.containsKey(tx.getTransactionId())) {
+      try {
+        recover(tx, tx.getInstance().getSignature());
+      } catch (RuntimeException e) {
+        throw toValidateSignatureException(e);
+      }
+      return;
+    }
+    try {
+      submit(tx).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ValidateSignatureException("interrupted while validating signature");
+    } catch (ExecutionException e) {
+      throw toValidateSignatureException(e.getCause());
+    }
+  }
+
+  /**
+   * Verify the signatures of {@code txs} in parallel, waiting for all of them.
+   *
+   * @throws ValidateSignatureException for the first transaction, in list order, whose signature
+   *     is invalid.
+   */
+  public void verify(List<TransactionCapsule> txs) throws ValidateSignatureException {
+    List<CompletableFuture<Boolean>> futures = new ArrayList<>(txs.size());
+    for (TransactionCapsule tx : txs) {
+      if (!isKnown(tx)) {
+        futures.add(submit(tx));
+      }
+    }
+    for (CompletableFuture<Boolean> future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        throw toValidateSignatureException(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Start verifying the signatures of {@code txs} in the background, a later {@link #verify} of
+   * one of them reuses the result.
+   */
+  public void prefetch(List<TransactionCapsule> txs) {
+    for (TransactionCapsule tx : txs) {
+      if (!isKnown(tx)) {
+        submit(tx);
+      }
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getRecoveredCount() {
+    return recovered.sum();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("cached:%d, hits:%d, recovered:%d, inFlight:%d",
+        verified.size(), getHitCount(), getRecoveredCount(), inFlight.size());
+  }
+
+  private boolean isKnown(TransactionCapsule tx) {
+    if (tx.isVerified()) {
+      return true;
+    }
+    ByteString signature = verified.getIfPresent(tx.getTransactionId());
+    if (signature != null && signature.equals(tx.getInstance().getSignature())) {
+      tx.setVerified(true);
+      hits.increment();
+      return true;
+    }
+    return false;
+  }
+
+  private CompletableFuture<Boolean> submit(TransactionCapsule tx) {
+    Sha256Hash id = tx.getTransactionId();
+    ByteString signature = tx.getInstance().getSignature();
+    CompletableFuture<Boolean> future = new CompletableFuture<>();
+    CompletableFuture<Boolean> running = inFlight.putIfAbsent(id, future);
+    if (running != null) {
+      // the same id may come with another signature, check it again once the first one is done,
+      // a cache hit if both are the same valid signature
+      return running.handleAsync((valid, e) -> recover(tx, signature), pool);
+    }
+
+    pool.execute(() -> {
+      try {
+        future.complete(recover(tx, signature));
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        inFlight.remove(id, future);
+      }
+    });
+    return future;
+  }
+
+  private boolean recover(TransactionCapsule tx, ByteString signature) {
+    if (isKnown(tx)) {
+      return true;
+    }
+    try {
+      tx.validateSignature();
+    } catch (ValidateSignatureException e) {
+      throw new CompletionException(e);
+    }
+    recovered.increment();
+    verified.put(tx.getTransactionId(), signature);
+    return true;
+  }
+
+  private static ValidateSignatureException toValidateSignatureException(Throwable cause) {
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof ValidateSignatureException) {
+      return (ValidateSignatureException) cause;
+    }
+    log.error("unexpected error while validating signature", cause);
+    return new ValidateSignatureException(String.valueOf(cause.getMessage()));
+  }
+}
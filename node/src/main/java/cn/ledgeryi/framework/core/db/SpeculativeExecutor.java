@@ -0,0 +1,158 @@
+package cn.ledgeryi.framework.core.db;
+
+import cn.ledgeryi.chainbase.core.capsule.BlockCapsule;
+import cn.ledgeryi.chainbase.core.capsule.TransactionCapsule;
+import cn.ledgeryi.chainbase.core.db.TransactionTrace;
+import cn.ledgeryi.chainbase.core.db2.core.ExecutionView;
+import cn.ledgeryi.protos.Protocol;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optimistic parallel execution of the transactions of a block.
+ *
+ * <p>Every transaction of the block is executed up front on a worker thread, inside its own
+ * {@link ExecutionView}, against whatever state the chain holds at that moment. The block is then
+ * processed in order as before, except that a transaction whose speculative execution read only
+ * values still current in the chain has its buffered writes committed instead of being executed
+ * again; any other one (conflict, failure, iteration over a store) is executed sequentially. Since
+ * a validated execution saw exactly the state the sequential one would have, the outcome of the
+ * block is the same.
+ */
+@Slf4j(topic = "DB")
+public class SpeculativeExecutor {
+
+  private final TransactionProcessor processor;
+  private final ExecutorService executor;
+  private final LongAdder committed = new LongAdder();
+  private final LongAdder reExecuted = new LongAdder();
+
+  public SpeculativeExecutor(TransactionProcessor processor, int threadNum) {
+    this.processor = processor;
+    this.executor = threadNum > 0
+        ? Executors.newFixedThreadPool(threadNum,
+        new ThreadFactoryBuilder().setNameFormat("speculative-exec-%d").setDaemon(true).build())
+        : null;
+  }
+
+  public boolean isEnabled() {
+    return executor != null;
+  }
+
+  /**
+   * Start executing the transactions of {@code block}, one speculation per transaction in block
+   * order, none if parallel execution is off or the block is too small to benefit.
+   */
+  public List<Future<Speculation>> speculate(BlockCapsule block) {
+    List<TransactionCapsule> transactions = block.getTransactions();
+    if (executor == null || transactions.size() < 2) {
+      return Collections.emptyList();
+    }
+
+    List<Future<Speculation>> speculations = new ArrayList<>(transactions.size());
+    for (TransactionCapsule tx : transactions) {
+      TransactionCapsule copy = new TransactionCapsule(tx.getInstance());
+      copy.setBlockNum(tx.getBlockNum());
+      copy.setVerified(tx.isVerified());
+      speculations.add(executor.submit(() -> execute(copy, block)));
+    }
+    return speculations;
+  }
+
+  /**
+   * Commit the speculation of {@code tx} if it is still valid.
+   *
+   * @return the result of the transaction, or null if it has to be executed again.
+   */
+  public Protocol.TransactionInfo commit(Future<Speculation> future, TransactionCapsule tx) {
+    Speculation speculation;
+    try {
+      speculation = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reExecuted.increment();
+      return null;
+    } catch (ExecutionException e) {
+      reExecuted.increment();
+      return null;
+    }
+
+    if (speculation.error != null || !speculation.view.validate()) {
+      reExecuted.increment();
+      return null;
+    }
+
+    speculation.view.commit();
+    TransactionTrace trace = speculation.tx.getTxTrace();
+    tx.setTxTrace(trace);
+    if (trace != null) {
+      tx.setResult(trace.getTransactionContext());
+    }
+    tx.setVerified(speculation.tx.isVerified());
+    committed.increment();
+    return speculation.info;
+  }
+
+  /**
+   * Drop the speculations that were not committed, the block failed or is done.
+   */
+  public void cancel(List<Future<Speculation>> speculations) {
+    speculations.forEach(future -> future.cancel(false));
+  }
+
+  public long getCommittedCount() {
+    return committed.sum();
+  }
+
+  public long getReExecutedCount() {
+    return reExecuted.sum();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("committed:%d, reExecuted:%d", getCommittedCount(), getReExecutedCount());
+  }
+
+  private Speculation execute(TransactionCapsule tx, BlockCapsule block) {
+    ExecutionView view = new ExecutionView();
+    try {
+      Protocol.TransactionInfo info = view.execute(() -> processor.process(tx, block));
+      return new Speculation(tx, view, info, null);
+    } catch (Exception e) {
+      return new Speculation(tx, view, null, e);
+    }
+  }
+
+  /**
+   * Executes one transaction of a block against the chain, {@link Manager#processTransaction}.
+   */
+  @FunctionalInterface
+  interface TransactionProcessor {
+
+    Protocol.TransactionInfo process(TransactionCapsule tx, BlockCapsule block) throws Exception;
+  }
+
+  static final class Speculation {
+
+    private final TransactionCapsule tx;
+    private final ExecutionView view;
+    private final Protocol.TransactionInfo info;
+    private final Exception error;
+
+    private Speculation(TransactionCapsule tx, ExecutionView view, Protocol.TransactionInfo info,
+        Exception error) {
+      this.tx = tx;
+      this.view = view;
+      this.info = info;
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,291 @@
+package cn.ledgeryi.framework.core.db;
+
+import cn.ledgeryi.chainbase.core.capsule.TransactionCapsule;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import cn.ledgeryi.common.utils.Sha256Hash;
+import com.google.common.util.concurrent.Striped;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pending transactions waiting to be packed into a block.
+ *
+ * <p>Transactions are queued per sender in arrival order and handed out round-robin across
+ * senders, so one busy account cannot starve the others. Every transaction is indexed by id for
+ * constant time removal once a block includes it. The pool is bounded by count and by serialized
+ * bytes; when full, the transaction closest to expiring is evicted first, and expired ones are
+ * dropped as the head block moves on.
+ *
+ * <p>Inserts and removals of different senders only contend on their lock stripe. A transaction
+ * is added to and removed from every index under the stripe of its sender, so the indexes never
+ * keep a transaction the others dropped.
+ */
+@Slf4j(topic = "DB")
+public class TransactionPool implements Iterable<TransactionCapsule> {
+
+  private static final int LOCK_STRIPES = 64;
+
+  private static final Comparator<Entry> BY_EXPIRATION = Comparator
+      .comparingLong((Entry e) -> e.expiration)
+      .thenComparingLong(e -> e.sequence);
+
+  private final int maxCount;
+  private final long maxBytes;
+
+  private final Map<Sha256Hash, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<WrappedByteArray, Map<Sha256Hash, Entry>> senders = new ConcurrentHashMap<>();
+  private final ConcurrentSkipListMap<Long, Entry> arrivals = new ConcurrentSkipListMap<>();
+  private final ConcurrentSkipListSet<Entry> expirations = new ConcurrentSkipListSet<>(BY_EXPIRATION);
+  private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final LongAdder evicted = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+
+  public TransactionPool(int maxCount, long maxBytes) {
+    this.maxCount = maxCount;
+    this.maxBytes = maxBytes;
+  }
+
+  public boolean contains(Sha256Hash id) {
+    return entries.containsKey(id);
+  }
+
+  /**
+   * @return whether adding {@code tx} now would keep it in the pool, that is the pool has room or
+   *     holds a transaction expiring before it.
+   */
+  public boolean admits(TransactionCapsule tx) {
+    if (entries.size() < maxCount && bytes.get() + tx.getSerializedSize() <= maxBytes) {
+      return true;
+    }
+    Entry first = firstToExpire();
+    return first != null && first.expiration < tx.getExpiration();
+  }
+
+  /**
+   * @return false if the transaction is already pending or was evicted right away for lack of
+   *     room.
+   */
+  public boolean add(TransactionCapsule tx) {
+    Entry entry = new Entry(tx, sequence.incrementAndGet());
+    Lock lock = locks.get(entry.sender);
+    lock.lock();
+    try {
+      if (entries.putIfAbsent(entry.id, entry) != null) {
+        return false;
+      }
+      senders.computeIfAbsent(entry.sender, k -> new LinkedHashMap<>()).put(entry.id, entry);
+      arrivals.put(entry.sequence, entry);
+      expirations.add(entry);
+      bytes.addAndGet(entry.size);
+    } finally {
+      lock.unlock();
+    }
+
+    makeRoom();
+    return entries.containsKey(entry.id);
+  }
+
+  /**
+   * @return the removed transaction, or null if it was not pending.
+   */
+  public TransactionCapsule remove(Sha256Hash id) {
+    Entry entry = entries.get(id);
+    return entry != null && remove(entry) ? entry.tx : null;
+  }
+
+  /**
+   * Drop the transactions that expire before {@code headBlockTime}.
+   */
+  public void evictExpired(long headBlockTime) {
+    Entry first;
+    while ((first = firstToExpire()) != null && first.expiration < headBlockTime) {
+      if (remove(first)) {
+        expired.increment();
+      }
+    }
+  }
+
+  /**
+   * Iterate over a snapshot of the pool in fair order: the first pending transaction of every
+   * sender, senders ordered by the arrival of that transaction, then the second of every sender,
+   * and so on. {@link Iterator#remove()} removes the last transaction returned from the pool.
+   */
+  @Override
+  public Iterator<TransactionCapsule> iterator() {
+    List<List<Entry>> queues = new ArrayList<>(senders.size());
+    for (Map.Entry<WrappedByteArray, Map<Sha256Hash, Entry>> sender : senders.entrySet()) {
+      Lock lock = locks.get(sender.getKey());
+      lock.lock();
+      try {
+        if (!sender.getValue().isEmpty()) {
+          queues.add(new ArrayList<>(sender.getValue().values()));
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    queues.sort(Comparator.comparingLong(queue -> queue.get(0).sequence));
+
+    List<Entry> order = new ArrayList<>();
+    for (int round = 0; !queues.isEmpty(); round++) {
+      int r = round;
+      queues.forEach(queue -> order.add(queue.get(r)));
+      queues.removeIf(queue -> queue.size() == r + 1);
+    }
+
+    return new Iterator<TransactionCapsule>() {
+      private int next = 0;
+      private Entry last;
+
+      @Override
+      public boolean hasNext() {
+        return next < order.size();
+      }
+
+      @Override
+      public TransactionCapsule next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = order.get(next++);
+        return last.tx;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        TransactionPool.this.remove(last);
+        last = null;
+      }
+    };
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public int getSenderCount() {
+    return senders.size();
+  }
+
+  /**
+   * @return how long the oldest pending transaction has been waiting, in milliseconds.
+   */
+  public long getOldestAge() {
+    Map.Entry<Long, Entry> oldest = arrivals.firstEntry();
+    return oldest == null ? 0 : System.currentTimeMillis() - oldest.getValue().arrival;
+  }
+
+  public long getEvictedCount() {
+    return evicted.sum();
+  }
+
+  public long getExpiredCount() {
+    return expired.sum();
+  }
+
+  public void clear() {
+    new ArrayList<>(entries.keySet()).forEach(this::remove);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("size:%d, bytes:%d, senders:%d, oldestAge:%dms, evicted:%d, expired:%d",
+        size(), getBytes(), getSenderCount(), getOldestAge(), getEvictedCount(), getExpiredCount());
+  }
+
+  private void makeRoom() {
+    while (entries.size() > maxCount || bytes.get() > maxBytes) {
+      Entry first = firstToExpire();
+      if (first == null) {
+        return;
+      }
+      if (remove(first)) {
+        evicted.increment();
+        log.debug("pending pool full, evict tx {}", first.id);
+      }
+    }
+  }
+
+  /**
+   * @return false if {@code entry} is no longer pending, it is then dropped from the expiration
+   *     index too so loops over that index always make progress.
+   */
+  private boolean remove(Entry entry) {
+    Lock lock = locks.get(entry.sender);
+    lock.lock();
+    try {
+      if (!entries.remove(entry.id, entry)) {
+        expirations.remove(entry);
+        return false;
+      }
+      Map<Sha256Hash, Entry> queue = senders.get(entry.sender);
+      if (queue != null) {
+        queue.remove(entry.id);
+        if (queue.isEmpty()) {
+          senders.remove(entry.sender);
+        }
+      }
+      arrivals.remove(entry.sequence);
+      expirations.remove(entry);
+      bytes.addAndGet(-entry.size);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Entry firstToExpire() {
+    try {
+      return expirations.first();
+    } catch (NoSuchElementException e) {
+      return null;
+    }
+  }
+
+  private static final class Entry {
+
+    private final TransactionCapsule tx;
+    private final Sha256Hash id;
+    private final WrappedByteArray sender;
+    private final long expiration;
+    private final long size;
+    private final long sequence;
+    private final long arrival;
+
+    private Entry(TransactionCapsule tx, long sequence) {
+      this.tx = tx;
+      this.id = tx.getTransactionId();
+      this.sender = WrappedByteArray.of(tx.getOwnerAddress());
+      this.expiration = tx.getExpiration();
+      this.size = tx.getSerializedSize();
+      this.sequence = sequence;
+      this.arrival = System.currentTimeMillis();
+    }
+  }
+}
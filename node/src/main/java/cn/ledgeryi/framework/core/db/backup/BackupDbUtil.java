@@ -117,6 +117,8 @@ public class BackupDbUtil {
     } else {
       throw new RuntimeException("Error backup with undefined index");
     }
+    // the roots must not be copied while a flush is still writing to them
+    ((SnapshotManager) db).awaitRefresh();
     List<Chainbase> stores = ((SnapshotManager) db).getDbs();
     for (Chainbase store : stores) {
       if (((SnapshotRoot) (store.getHead().getRoot())).getDb().getClass()
@@ -2,7 +2,6 @@ package cn.ledgeryi.framework.core.net.message;
 
 import cn.ledgeryi.chainbase.core.message.MessageTypes;
 import cn.ledgeryi.common.core.exception.P2pException;
-import org.apache.commons.lang3.ArrayUtils;
 import cn.ledgeryi.framework.common.overlay.message.MessageFactory;
 
 /**
@@ -12,19 +11,22 @@ public class LedgerYiMessageFactory extends MessageFactory {
 
   @Override
   public LedgerYiMessage create(byte[] data) throws Exception {
+    return (LedgerYiMessage) super.create(data);
+  }
+
+  @Override
+  protected LedgerYiMessage create(byte type, byte[] packed) throws Exception {
     try {
-      byte type = data[0];
-      byte[] rawData = ArrayUtils.subarray(data, 1, data.length);
-      return create(type, rawData);
+      return parse(type, packed);
     } catch (final P2pException e) {
       throw e;
     } catch (final Exception e) {
       throw new P2pException(P2pException.TypeEnum.PARSE_MESSAGE_FAILED,
-          "type=" + data[0] + ", len=" + data.length + ", error msg: " + e.getMessage());
+          "type=" + type + ", len=" + (packed.length + 1) + ", error msg: " + e.getMessage());
     }
   }
 
-  private LedgerYiMessage create(byte type, byte[] packed) throws Exception {
+  private LedgerYiMessage parse(byte type, byte[] packed) throws Exception {
     MessageTypes receivedTypes = MessageTypes.fromByte(type);
     if (receivedTypes == null) {
       throw new P2pException(P2pException.TypeEnum.NO_SUCH_MESSAGE,
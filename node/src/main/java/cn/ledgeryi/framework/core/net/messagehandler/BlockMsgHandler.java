@@ -53,6 +53,9 @@ public class BlockMsgHandler implements LedgerYiMsgHandler {
       syncService.processBlock(peer, blockMessage);
     } else {
       Long time = peer.getAdvInvRequest().remove(new Item(blockId, InventoryType.BLOCK));
+      if (peer.isIdle()) {
+        advService.triggerFetch();
+      }
       long now = System.currentTimeMillis();
       long interval = blockId.getNum() - ledgerYiNetDelegate.getHeadBlockId().getNum();
       processBlock(peer, blockMessage.getBlockCapsule());
@@ -1,5 +1,6 @@
 package cn.ledgeryi.framework.core.net.messagehandler;
 
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -7,6 +8,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import cn.ledgeryi.common.core.exception.P2pException;
 import lombok.Getter;
@@ -14,6 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import cn.ledgeryi.framework.core.config.args.Args;
+import cn.ledgeryi.framework.core.db.SignatureVerifier;
 import cn.ledgeryi.framework.core.net.LedgerYiNetDelegate;
 import cn.ledgeryi.framework.core.net.message.TransactionMessage;
 import cn.ledgeryi.framework.core.net.message.TransactionsMessage;
@@ -35,6 +38,8 @@ public class TransactionsMsgHandler implements LedgerYiMsgHandler {
   private LedgerYiNetDelegate ledgerYiNetDelegate;
   @Autowired
   private AdvService advService;
+  @Autowired
+  private SignatureVerifier signatureVerifier;
 
   //  private static int TIME_OUT = 10 * 60 * 1000;
   private BlockingQueue<TxEvent> smartContractQueue = new LinkedBlockingQueue(MAX_TX_SIZE);
@@ -65,8 +70,18 @@ public class TransactionsMsgHandler implements LedgerYiMsgHandler {
     log.debug("[processTxMessage] [processMessage] {} ,{} from peer {}", msg,
             ((TransactionsMessage) msg).getTransactions(), peer.getInetAddress());
     check(peer, transactionsMessage);
-    for (Transaction tx : transactionsMessage.getTransactions().getTransactionsList()) {
-      txHandlePool.submit(() -> handleTransaction(peer, new TransactionMessage(tx)));
+    if (peer.isIdle()) {
+      advService.triggerFetch();
+    }
+    List<TransactionMessage> txs = transactionsMessage.getTransactions().getTransactionsList().stream()
+        .map(TransactionMessage::new)
+        .collect(Collectors.toList());
+    // recover the signatures of the whole message in parallel while the handlers are queued
+    signatureVerifier.prefetch(txs.stream()
+        .map(TransactionMessage::getTransactionCapsule)
+        .collect(Collectors.toList()));
+    for (TransactionMessage tx : txs) {
+      txHandlePool.submit(() -> handleTransaction(peer, tx));
     }
   }
 
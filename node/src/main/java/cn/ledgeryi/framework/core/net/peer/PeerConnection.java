@@ -106,6 +106,13 @@ public class PeerConnection extends Channel {
     return advInvRequest.isEmpty() && syncBlockRequested.isEmpty() && syncChainRequested == null;
   }
 
+  /**
+   * @return whether the peer announced the item to us or we announced it to the peer.
+   */
+  public boolean isKnown(Item item) {
+    return advInvSpread.getIfPresent(item) != null || advInvReceive.getIfPresent(item) != null;
+  }
+
   public void sendMessage(Message message) {
     msgQueue.sendMessage(message);
   }
@@ -11,8 +11,10 @@ import com.google.common.cache.CacheBuilder;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import lombok.Getter;
@@ -33,10 +35,18 @@ import static cn.ledgeryi.chainbase.core.config.Parameter.NetConstants.MAX_TX_FE
 import static cn.ledgeryi.chainbase.core.config.Parameter.NetConstants.MSG_CACHE_DURATION_IN_BLOCKS;
 import static cn.ledgeryi.chainbase.core.config.Parameter.ChainConstant.BLOCK_PRODUCED_INTERVAL;
 
+/**
+ * Spreads and fetches inventory. Both run when there is something to do: broadcasting an item
+ * spreads it, an announced item or a peer becoming idle fetches, signals arriving while a run is
+ * pending are served by that run. Fetching also sweeps on a slow timer for what nothing signals,
+ * items expiring and peers leaving sync.
+ */
 @Slf4j(topic = "net")
 @Component
 public class AdvService {
 
+    private static final long FETCH_SWEEP_INTERVAL = 500;
+
     @Autowired
     private LedgerYiNetDelegate ledgerYiNetDelegate;
 
@@ -60,29 +70,61 @@ public class AdvService {
     @Getter
     private MessageCount txCount = new MessageCount();
 
+    private final AtomicBoolean spreadScheduled = new AtomicBoolean();
+
+    private final AtomicBoolean fetchScheduled = new AtomicBoolean();
+
     private int maxSpreadSize = 5_000;
 
     private boolean fastForward = Args.getInstance().isFastForward();
 
+    /**
+     * peers a transaction is announced to, 0 for every peer.
+     */
+    private int txFanout = Args.getInstance().getTxFanout();
+
     public void init() {
         /*if (fastForward) {
           return;
         }*/
-        spreadExecutor.scheduleWithFixedDelay(() -> {
-            try {
-                consumerInvToSpread();
-            } catch (Exception exception) {
-                log.error("Spread thread error.", exception.getMessage());
-            }
-        }, 100, 30, TimeUnit.MILLISECONDS);
-
         fetchExecutor.scheduleWithFixedDelay(() -> {
             try {
                 consumerInvToFetch();
             } catch (Exception exception) {
-                log.error("Fetch thread error.", exception.getMessage());
+                log.error("Fetch thread error.", exception);
             }
-        }, 100, 30, TimeUnit.MILLISECONDS);
+        }, 100, FETCH_SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * fetch what is announced and not requested yet, call it when a peer may have become idle.
+     */
+    public void triggerFetch() {
+        trigger(fetchExecutor, fetchScheduled, this::consumerInvToFetch, "Fetch");
+    }
+
+    private void triggerSpread() {
+        trigger(spreadExecutor, spreadScheduled, this::consumerInvToSpread, "Spread");
+    }
+
+    private void trigger(ScheduledExecutorService executor, AtomicBoolean scheduled,
+                         Runnable consumer, String name) {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                scheduled.set(false);
+                try {
+                    consumer.run();
+                } catch (Exception exception) {
+                    log.error("{} thread error.", name, exception);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed
+            scheduled.set(false);
+        }
     }
 
     public void close() {
@@ -120,6 +162,8 @@ public class AdvService {
 
         if (Protocol.Inventory.InventoryType.BLOCK.equals(item.getType())) {
             consumerInvToFetch();
+        } else {
+            triggerFetch();
         }
 
         return true;
@@ -168,6 +212,8 @@ public class AdvService {
         invToSpread.put(item, System.currentTimeMillis());
         if (Protocol.Inventory.InventoryType.BLOCK.equals(item.getType())) {
             consumerInvToSpread();
+        } else {
+            triggerSpread();
         }
     }
 
@@ -175,8 +221,7 @@ public class AdvService {
         Item item = new Item(msg.getBlockId(), Protocol.Inventory.InventoryType.BLOCK);
         List<PeerConnection> peers = ledgerYiNetDelegate.getActivePeer().stream()
                 .filter(peer -> !peer.isNeedSyncFromPeer() && !peer.isNeedSyncFromUs())
-                .filter(peer -> peer.getAdvInvReceive().getIfPresent(item) == null
-                        && peer.getAdvInvSpread().getIfPresent(item) == null)
+                .filter(peer -> !peer.isKnown(item))
                 .collect(Collectors.toList());
 
         if (!fastForward) {
@@ -204,12 +249,12 @@ public class AdvService {
         }
 
         if (invToFetch.size() > 0) {
-            consumerInvToFetch();
+            triggerFetch();
         }
     }
 
     private synchronized void consumerInvToFetch() {
-        Collection<PeerConnection> peers = ledgerYiNetDelegate.getActivePeer().stream()
+        List<PeerConnection> peers = ledgerYiNetDelegate.getActivePeer().stream()
                 .filter(peer -> peer.isIdle()).collect(Collectors.toList());
 
         if (invToFetch.isEmpty() || peers.isEmpty()) {
@@ -225,14 +270,21 @@ public class AdvService {
                 invToFetchCache.invalidate(item);
                 return;
             }
-            peers.stream().filter(peer -> peer.getAdvInvReceive().getIfPresent(item) != null
-                    && invSender.getSize(peer) < MAX_TX_FETCH_PER_PEER).sorted(
-                    Comparator.comparingInt(peer -> invSender.getSize(peer))).findFirst().ifPresent(
-                    peer -> {
-                        invSender.add(item, peer);
-                        peer.getAdvInvRequest().put(item, now);
-                        invToFetch.remove(item);
-                    });
+            // the first least loaded peer that announced the item
+            PeerConnection target = null;
+            int min = MAX_TX_FETCH_PER_PEER;
+            for (PeerConnection peer : peers) {
+                int size = invSender.getSize(peer);
+                if (size < min && peer.getAdvInvReceive().getIfPresent(item) != null) {
+                    target = peer;
+                    min = size;
+                }
+            }
+            if (target != null) {
+                invSender.add(item, target);
+                target.getAdvInvRequest().put(item, now);
+                invToFetch.remove(item);
+            }
         });
 
         invSender.sendFetch();
@@ -250,16 +302,31 @@ public class AdvService {
             return;
         }
         InvSender invSender = new InvSender();
-        invToSpread.forEach((item, time) -> peers.forEach(peer -> {
-            if (peer.getAdvInvReceive().getIfPresent(item) == null
-                    && peer.getAdvInvSpread().getIfPresent(item) == null
-                    && !(item.getType().equals(Protocol.Inventory.InventoryType.BLOCK)
-                    && System.currentTimeMillis() - time > BLOCK_PRODUCED_INTERVAL)) {
-                peer.getAdvInvSpread().put(item, Time.getCurrentMillis());
-                invSender.add(item, peer);
-            }
+        long now = System.currentTimeMillis();
+        int txPeers = txFanout <= 0 ? peers.size()
+                : Math.max(txFanout, (int) Math.ceil(Math.sqrt(peers.size())));
+        invToSpread.forEach((item, time) -> {
             invToSpread.remove(item);
-        }));
+            boolean isBlock = item.getType().equals(Protocol.Inventory.InventoryType.BLOCK);
+            if (isBlock && now - time > BLOCK_PRODUCED_INTERVAL) {
+                return;
+            }
+            // blocks go to every peer, transactions to txPeers of them, starting at a peer
+            // picked by the item so the announcements spread over all peers
+            int fanout = isBlock ? peers.size() : txPeers;
+            int start = fanout < peers.size() ? Math.floorMod(item.hashCode(), peers.size()) : 0;
+            for (int i = 0; i < peers.size() && fanout > 0; i++) {
+                PeerConnection peer = peers.get((start + i) % peers.size());
+                if (!isBlock && peer.isFastForwardPeer()) {
+                    continue;
+                }
+                if (!peer.isKnown(item)) {
+                    peer.getAdvInvSpread().put(item, Time.getCurrentMillis());
+                    invSender.add(item, peer);
+                    fanout--;
+                }
+            }
+        });
 
         invSender.sendInv();
     }
@@ -268,35 +335,32 @@ public class AdvService {
 
         private HashMap<PeerConnection, HashMap<Protocol.Inventory.InventoryType, LinkedList<Sha256Hash>>> send = new HashMap<>();
 
+        /**
+         * ids added per peer, all types.
+         */
+        private HashMap<PeerConnection, Integer> size = new HashMap<>();
+
         public void clear() {
             this.send.clear();
+            this.size.clear();
         }
 
         public void add(Map.Entry<Sha256Hash, Protocol.Inventory.InventoryType> id, PeerConnection peer) {
-            if (send.containsKey(peer) && !send.get(peer).containsKey(id.getValue())) {
-                send.get(peer).put(id.getValue(), new LinkedList<>());
-            } else if (!send.containsKey(peer)) {
-                send.put(peer, new HashMap<>());
-                send.get(peer).put(id.getValue(), new LinkedList<>());
-            }
-            send.get(peer).get(id.getValue()).offer(id.getKey());
+            add(id.getKey(), id.getValue(), peer);
         }
 
         public void add(Item id, PeerConnection peer) {
-            if (send.containsKey(peer) && !send.get(peer).containsKey(id.getType())) {
-                send.get(peer).put(id.getType(), new LinkedList<>());
-            } else if (!send.containsKey(peer)) {
-                send.put(peer, new HashMap<>());
-                send.get(peer).put(id.getType(), new LinkedList<>());
-            }
-            send.get(peer).get(id.getType()).offer(id.getHash());
+            add(id.getHash(), id.getType(), peer);
+        }
+
+        private void add(Sha256Hash hash, Protocol.Inventory.InventoryType type, PeerConnection peer) {
+            send.computeIfAbsent(peer, k -> new HashMap<>())
+                    .computeIfAbsent(type, k -> new LinkedList<>()).offer(hash);
+            size.merge(peer, 1, Integer::sum);
         }
 
         public int getSize(PeerConnection peer) {
-            if (send.containsKey(peer)) {
-                return send.get(peer).values().stream().mapToInt(LinkedList::size).sum();
-            }
-            return 0;
+            return size.getOrDefault(peer, 0);
         }
 
         public void sendInv() {
@@ -0,0 +1,293 @@
+package cn.ledgeryi.framework.core.db;
+
+import static org.junit.Assert.assertEquals;
+
+import cn.ledgeryi.chainbase.common.utils.DBConfig;
+import cn.ledgeryi.chainbase.core.capsule.BlockCapsule;
+import cn.ledgeryi.chainbase.core.capsule.TransactionCapsule;
+import cn.ledgeryi.chainbase.core.db2.common.DB;
+import cn.ledgeryi.chainbase.core.db2.common.WrappedByteArray;
+import cn.ledgeryi.chainbase.core.db2.core.Chainbase;
+import cn.ledgeryi.chainbase.core.db2.core.SnapshotRoot;
+import cn.ledgeryi.common.core.exception.ContractExeException;
+import cn.ledgeryi.common.utils.ByteArray;
+import cn.ledgeryi.common.utils.Sha256Hash;
+import cn.ledgeryi.framework.core.db.SpeculativeExecutor.Speculation;
+import cn.ledgeryi.protos.Protocol.Transaction;
+import cn.ledgeryi.protos.Protocol.TransactionInfo;
+import cn.ledgeryi.protos.Protocol.TransactionInfo.code;
+import com.google.protobuf.ByteString;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Differential test of {@link SpeculativeExecutor}: the same block runs sequentially and with
+ * speculative execution, as {@link Manager#processBlock} drives it, and must leave the same store
+ * contents and the same {@link TransactionInfo} for every transaction.
+ *
+ * <p>The transactions move ERC20 like balances held in a {@link Chainbase}, so conflicts,
+ * failures and iterations go through the real snapshot chain and {@code ExecutionView}.
+ */
+public class SpeculativeExecutorTest {
+
+  private static final byte[] TRANSACTIONS = "transactions".getBytes();
+  private static final byte[] HOLDERS = "holders".getBytes();
+
+  // ops of the block, with why each one commits or is executed again when every speculation
+  // ran against the state before the block
+  private static final String[] BLOCK = {
+      // commits, nothing ran before it
+      "transfer alice bob 60",
+      // same balance as the previous one, alice changed
+      "transfer alice carol 30",
+      // throws when speculated, bob is only funded by the first transfer
+      "strict-transfer bob dave 50",
+      // fails both ways on an untouched balance, commits
+      "transfer erin alice 1",
+      // succeeds when speculated, fails once the earlier transfers drained alice
+      "transfer alice dave 50",
+      // fails when speculated, succeeds once dave was funded
+      "transfer dave erin 5",
+      // iterates the balances, always executed again
+      "holders",
+      // independent of the others, commits
+      "transfer frank gina 1"};
+
+  @BeforeClass
+  public static void init() {
+    if (DBConfig.getValidContractProtoThreadNum() <= 0) {
+      DBConfig.setValidContractProtoThreadNum(1);
+    }
+  }
+
+  @Test
+  public void sequentialBlock() throws Exception {
+    Ledger ledger = new Ledger();
+    List<TransactionInfo> infos = ledger.run(new SpeculativeExecutor(ledger, 0), false);
+
+    assertEquals(code.SUCESS, infos.get(0).getResult());
+    assertEquals(code.FAILED, infos.get(3).getResult());
+    assertEquals(code.FAILED, infos.get(4).getResult());
+    assertEquals(code.SUCESS, infos.get(5).getResult());
+    assertEquals(10, ledger.balance("alice"));
+    assertEquals(10, ledger.balance("bob"));
+    assertEquals(80, ledger.balance("carol"));
+    assertEquals(45, ledger.balance("dave"));
+    assertEquals(5, ledger.balance("erin"));
+    assertEquals(19, ledger.balance("frank"));
+    assertEquals(1, ledger.balance("gina"));
+    assertEquals(6, ByteArray.toLong(ledger.stats.getUnchecked(HOLDERS)));
+    assertEquals(BLOCK.length, ByteArray.toLong(ledger.stats.getUnchecked(TRANSACTIONS)));
+  }
+
+  @Test
+  public void speculationsAgainstTheParentState() throws Exception {
+    Ledger sequential = new Ledger();
+    List<TransactionInfo> expected = sequential.run(new SpeculativeExecutor(sequential, 0), false);
+
+    Ledger parallel = new Ledger();
+    SpeculativeExecutor executor = new SpeculativeExecutor(parallel, 4);
+    List<TransactionInfo> actual = parallel.run(executor, true);
+
+    assertEquals(expected, actual);
+    assertEquals(sequential.contents(), parallel.contents());
+    assertEquals(3, executor.getCommittedCount());
+    assertEquals(BLOCK.length - 3, executor.getReExecutedCount());
+  }
+
+  @Test
+  public void speculationsInterleavedWithCommits() throws Exception {
+    Ledger sequential = new Ledger();
+    List<TransactionInfo> expected = sequential.run(new SpeculativeExecutor(sequential, 0), false);
+
+    for (int round = 0; round < 20; round++) {
+      Ledger parallel = new Ledger();
+      SpeculativeExecutor executor = new SpeculativeExecutor(parallel, 1 + round % 4);
+      List<TransactionInfo> actual = parallel.run(executor, false);
+
+      assertEquals(expected, actual);
+      assertEquals(sequential.contents(), parallel.contents());
+      assertEquals(BLOCK.length, executor.getCommittedCount() + executor.getReExecutedCount());
+    }
+  }
+
+  /**
+   * Balances and counters of one run, stored in chainbases whose head is a snapshot over a root
+   * holding the state before the block, and the processor executing the block against them.
+   */
+  private static final class Ledger implements SpeculativeExecutor.TransactionProcessor {
+
+    private final Chainbase balances = newChainbase("balances");
+    private final Chainbase stats = newChainbase("stats");
+
+    private Ledger() {
+      ((SnapshotRoot) balances.getHead()).put(key("alice"), ByteArray.fromLong(100));
+      ((SnapshotRoot) balances.getHead()).put(key("carol"), ByteArray.fromLong(50));
+      ((SnapshotRoot) balances.getHead()).put(key("frank"), ByteArray.fromLong(20));
+      balances.setHead(balances.getHead().advance());
+      stats.setHead(stats.getHead().advance());
+    }
+
+    /**
+     * process the block the way {@link Manager#processBlock} does.
+     *
+     * @param settle wait for every speculation before committing the first one
+     */
+    private List<TransactionInfo> run(SpeculativeExecutor executor, boolean settle)
+        throws Exception {
+      BlockCapsule block = new BlockCapsule(1, Sha256Hash.ZERO_HASH, 0, ByteString.EMPTY);
+      for (int i = 0; i < BLOCK.length; i++) {
+        Transaction.raw raw = Transaction.raw.newBuilder()
+            .setData(ByteString.copyFromUtf8(BLOCK[i]))
+            .setTimestamp(i)
+            .build();
+        Transaction tx = Transaction.newBuilder().setRawData(raw).build();
+        block.addTransaction(new TransactionCapsule(tx));
+      }
+
+      List<Future<Speculation>> speculations = executor.speculate(block);
+      if (settle) {
+        for (Future<Speculation> speculation : speculations) {
+          speculation.get();
+        }
+      }
+      List<TransactionInfo> infos = new ArrayList<>();
+      try {
+        for (int i = 0; i < block.getTransactions().size(); i++) {
+          TransactionCapsule tx = block.getTransactions().get(i);
+          TransactionInfo info = speculations.isEmpty() ? null
+              : executor.commit(speculations.get(i), tx);
+          if (info == null) {
+            info = process(tx, block);
+          }
+          infos.add(info);
+        }
+      } finally {
+        executor.cancel(speculations);
+      }
+      return infos;
+    }
+
+    @Override
+    public TransactionInfo process(TransactionCapsule tx, BlockCapsule block) throws Exception {
+      String[] op = tx.getInstance().getRawData().getData().toStringUtf8().split(" ");
+      stats.update(TRANSACTIONS, value -> ByteArray.fromLong(ByteArray.toLong(value) + 1));
+      TransactionInfo.Builder info = TransactionInfo.newBuilder()
+          .setId(ByteString.copyFrom(tx.getTransactionId().getBytes()))
+          .setBlockNumber(block.getNum());
+
+      if ("holders".equals(op[0])) {
+        long holders = 0;
+        Iterator<Map.Entry<byte[], byte[]>> iterator = balances.iterator();
+        while (iterator.hasNext()) {
+          if (ByteArray.toLong(iterator.next().getValue()) > 0) {
+            holders++;
+          }
+        }
+        stats.put(HOLDERS, ByteArray.fromLong(holders));
+        return info.addContractResult(ByteString.copyFrom(ByteArray.fromLong(holders))).build();
+      }
+
+      long amount = Long.parseLong(op[3]);
+      long from = balance(op[1]);
+      if (from < amount) {
+        if ("strict-transfer".equals(op[0])) {
+          throw new ContractExeException("insufficient balance of " + op[1]);
+        }
+        return info.setResult(code.FAILED)
+            .setResMessage(ByteString.copyFromUtf8("insufficient balance"))
+            .addContractResult(ByteString.copyFrom(ByteArray.fromLong(from)))
+            .build();
+      }
+      long to = balance(op[2]);
+      balances.put(key(op[1]), ByteArray.fromLong(from - amount));
+      balances.put(key(op[2]), ByteArray.fromLong(to + amount));
+      return info.addContractResult(ByteString.copyFrom(ByteArray.fromLong(from - amount))).build();
+    }
+
+    private long balance(String owner) {
+      return ByteArray.toLong(balances.getUnchecked(key(owner)));
+    }
+
+    private Map<String, String> contents() {
+      Map<String, String> contents = new TreeMap<>();
+      for (Chainbase db : new Chainbase[] {balances, stats}) {
+        db.iterator().forEachRemaining(e -> contents.put(
+            db.getDbName() + "/" + new String(e.getKey()), ByteArray.toHexString(e.getValue())));
+      }
+      return contents;
+    }
+  }
+
+  private static byte[] key(String owner) {
+    return owner.getBytes();
+  }
+
+  private static Chainbase newChainbase(String name) {
+    return new Chainbase(new SnapshotRoot(new MemoryDB(name)));
+  }
+
+  /**
+   * the root store of a chainbase, kept in memory.
+   */
+  private static final class MemoryDB implements DB<byte[], byte[]> {
+
+    private final Map<WrappedByteArray, byte[]> rows = new ConcurrentHashMap<>();
+    private final String name;
+
+    private MemoryDB(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+      return rows.get(WrappedByteArray.of(key));
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+      rows.put(WrappedByteArray.copyOf(key), value);
+    }
+
+    @Override
+    public long size() {
+      return rows.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return rows.isEmpty();
+    }
+
+    @Override
+    public void remove(byte[] key) {
+      rows.remove(WrappedByteArray.of(key));
+    }
+
+    @Override
+    public String getDbName() {
+      return name;
+    }
+
+    @Override
+    public Iterator<Map.Entry<byte[], byte[]>> iterator() {
+      return rows.entrySet().stream()
+          .map(e -> (Map.Entry<byte[], byte[]>) new SimpleImmutableEntry<>(e.getKey().getBytes(),
+              e.getValue()))
+          .iterator();
+    }
+
+    @Override
+    public DB<byte[], byte[]> newInstance() {
+      return new MemoryDB(name);
+    }
+  }
+}